@@ -1,67 +1,92 @@
 
-import java.io.IOException;
-import java.nio.file.Files;
 import java.nio.file.Paths;
 import java.text.DecimalFormat;
-import java.util.ArrayList;
 import java.util.Arrays;
-import java.util.List;
 
-import wordGuesserGenerator.GeneratedGuessNode;
+import wordGuesserGenerator.GameSession;
+import wordGuesserGenerator.GuessEngine;
+import wordGuesserGenerator.OnlineSolver;
+import wordGuesserGenerator.TreeCache;
 
 public class IntelligenterSpieler extends Spieler {
 	
-	ArrayList<String> remWords;
-	
 	DecimalFormat formatter = new DecimalFormat("##.#");
 	
-	private static GeneratedGuessNode guesser;
-	private static int wordsHash = 0;
-	private GeneratedGuessNode curr = null;
+	// -DwordGuesser.generationMillis=0 plays unknown word lists with the online solver instead of generating a tree
+	private static final long GENERATION_MILLIS = Long.getLong("wordGuesser.generationMillis", 5000);
+	// time limit for choosing a guess with the online solver
+	private static final long MOVE_MILLIS = Long.getLong("wordGuesser.moveMillis", 20);
+	
+	// shared by all players, a player only holds its game
+	private static TreeCache trees;
+	private static String[] lastWords = null;
+	private static GuessEngine lastEngine = null;
+	private static OnlineSolver lastSolver = null;
+	private GameSession session = null;
+	private OnlineSolver.Game onlineGame = null;
 	
 	@Override
 	public void neuesSpiel(String[] verwendeteWoerter) {
-		if (wordsHash != Arrays.hashCode(verwendeteWoerter)) {
-			wordsHash = Arrays.hashCode(verwendeteWoerter);
-			
-			// Parse precomputed guesser
+		GuessEngine engine = null;
+		OnlineSolver solver = null;
+		TreeCache cache;
+		synchronized (IntelligenterSpieler.class) {
+			if (lastWords != null && Arrays.equals(lastWords, verwendeteWoerter)) {
+				engine = lastEngine;
+				solver = lastSolver;
+			}
+			cache = trees();
+		}
+		if (engine == null && solver == null) {
+			// outside of the lock, generating a tree can take a while
+			engine = (GENERATION_MILLIS > 0) ? cache.get(verwendeteWoerter) : cache.find(verwendeteWoerter);
+			if (engine == null) solver = new OnlineSolver(verwendeteWoerter, MOVE_MILLIS * 1000000);
+			synchronized (IntelligenterSpieler.class) {
+				lastWords = verwendeteWoerter.clone();
+				lastEngine = engine;
+				lastSolver = solver;
+			}
+		}
+		session = (engine == null) ? null : engine.newSession();
+		onlineGame = (solver == null) ? null : solver.newGame();
+	}
+	
+	private static TreeCache trees() {
+		if (trees == null) {
+			// Precomputed guessers are stored per word list in the directory "trees"; for a word list without one,
+			// alg.bin and alg.txt are tried, and if they don't fit the word list, a guesser is generated on the fly.
 			// See the package wordGuesserGenerator for more information on how this works
-			try {
-				List<String> lines = Files.readAllLines(Paths.get("alg.txt"));
-				
-				guesser = GeneratedGuessNode.deserializeGuessTree((String[]) lines.toArray(new String[lines.size()]));
-				
-			} catch (IOException e) {
-				// TODO Auto-generated catch block
-				e.printStackTrace();
+			trees = new TreeCache(Paths.get(System.getProperty("wordGuesser.trees", "trees")), 4, GENERATION_MILLIS);
+			// -DwordGuesser.tree=<file> adds another file to try first
+			if (System.getProperty("wordGuesser.tree") != null) {
+				trees.addFallbackFile(Paths.get(System.getProperty("wordGuesser.tree")));
 			}
+			trees.addFallbackFile(Paths.get("alg.bin"));
+			trees.addFallbackFile(Paths.get("alg.txt"));
 		}
-		
-		curr = guesser;
+		return trees;
 	}
 	
 	public String gibTipp() {
-		if (curr == null) {
+		String tipp = null;
+		if (session != null) {
+			tipp = session.guess();
+		} else if (onlineGame != null) {
+			tipp = onlineGame.guess();
+		}
+		if (tipp == null) {
 			System.out.println("My bot is bad!");
 			return "";
 		}
-		return curr.guess;
+		return tipp;
     }
 	
 	@Override
 	public void bekommeHinweis(String tipp, String hinweis) {
-		if (hinweis.equals("ist")) return;
-		
-		if (hinweis.contains("nicht")) {
-			curr = curr.notCont;
-		} else if (hinweis.contains("und")) {
-			curr = curr.begEnd;
-		} else if (hinweis.contains("beginnt")) {
-			curr = curr.begin;
-		} else if (hinweis.contains("endet")) {
-			curr = curr.end;
-		} else if (hinweis.contains("enthält")) {
-			curr = curr.onlyCont;
+		if (session != null) {
+			session.hint(hinweis);
+		} else if (onlineGame != null) {
+			onlineGame.hint(hinweis);
 		}
 	}
     
@@ -0,0 +1,130 @@
+package wordGuesserGenerator;
+
+import java.io.File;
+import java.lang.invoke.MethodHandle;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.MethodType;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Benchmarks playing full games, both through {@code IntelligenterSpieler} and directly with a {@link GameSession}.
+ * Each operation plays one game, with the words to guess taken from the word list in turn.
+ *
+ * @author libraun
+ *
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class GameBenchmark {
+	// hints as the computer gives them, indexed by partition code
+	private static final String[] HINTS = {"enthält nicht", "enthält", "beginnt mit", "endet mit", "beginnt und endet mit"};
+
+	/**
+	 * "sample" for the checked-in word list, otherwise the size of a synthetic word list.
+	 */
+	@Param({"sample", "2000"})
+	public String wordList;
+
+	private String[] words;
+	private Path treeFile;
+	private Path treeDirectory;
+	private GuessEngine engine;
+	private int next = 0;
+
+	// IntelligenterSpieler is in the default package, so it can only be called reflectively
+	private Object player;
+	private MethodHandle neuesSpiel, gibTipp, bekommeHinweis;
+
+	@Setup
+	public void setup() throws Throwable {
+		words = WordLists.get(wordList);
+		Generator g = new Generator(new HashSet<String>(Arrays.asList(words)), 1);
+		GeneratedGuessNode root = g.generateGuessTreeRandomized(1, new HeuristicParams());
+		treeFile = Files.createTempFile("alg", ".bin");
+		GuessTreeIO.save(root, treeFile);
+		engine = GuessEngine.load(treeFile);
+
+		treeDirectory = Files.createTempDirectory("trees");
+		System.setProperty("wordGuesser.trees", treeDirectory.toString());
+		System.setProperty("wordGuesser.tree", treeFile.toString());
+		Class<?> c = Class.forName("IntelligenterSpieler");
+		MethodHandles.Lookup lookup = MethodHandles.publicLookup();
+		player = c.getConstructor().newInstance();
+		neuesSpiel = lookup.findVirtual(c, "neuesSpiel", MethodType.methodType(void.class, String[].class))
+				.asType(MethodType.methodType(void.class, Object.class, String[].class));
+		gibTipp = lookup.findVirtual(c, "gibTipp", MethodType.methodType(String.class))
+				.asType(MethodType.methodType(String.class, Object.class));
+		bekommeHinweis = lookup.findVirtual(c, "bekommeHinweis", MethodType.methodType(void.class, String.class, String.class))
+				.asType(MethodType.methodType(void.class, Object.class, String.class, String.class));
+	}
+
+	@TearDown
+	public void tearDown() throws Exception {
+		Files.deleteIfExists(treeFile);
+		for (File f : treeDirectory.toFile().listFiles()) {
+			Files.delete(f.toPath());
+		}
+		Files.delete(treeDirectory);
+	}
+
+	private String nextWord() {
+		String word = words[next];
+		next = (next + 1 == words.length) ? 0 : next + 1;
+		return word;
+	}
+
+	/**
+	 * One game with IntelligenterSpieler, including the start of the game.
+	 */
+	@Benchmark
+	public int intelligenterSpieler() throws Throwable {
+		String word = nextWord();
+		neuesSpiel.invokeExact(player, words);
+		for (int guesses = 1; ; guesses++) {
+			String tip = (String) gibTipp.invokeExact(player);
+			if (tip.equals(word)) {
+				bekommeHinweis.invokeExact(player, tip, "ist");
+				return guesses;
+			}
+			bekommeHinweis.invokeExact(player, tip, HINTS[TipTable.classify(word, tip)]);
+		}
+	}
+
+	/**
+	 * One game with a session of the shared engine.
+	 */
+	@Benchmark
+	public int gameSession() {
+		String word = nextWord();
+		GameSession s = engine.newSession();
+		for (int guesses = 1; ; guesses++) {
+			String tip = s.guess();
+			if (tip.equals(word)) {
+				s.hint("ist");
+				return guesses;
+			}
+			s.hint(HINTS[TipTable.classify(word, tip)]);
+		}
+	}
+}
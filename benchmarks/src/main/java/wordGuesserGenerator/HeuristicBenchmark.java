@@ -0,0 +1,93 @@
+package wordGuesserGenerator;
+
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Benchmarks choosing and applying a guess for a subset of the word list, the inner loop of the generator.
+ *
+ * @author libraun
+ *
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class HeuristicBenchmark {
+
+	/**
+	 * "sample" for the checked-in word list, otherwise the size of a synthetic word list.
+	 */
+	@Param({"sample", "2000", "8000"})
+	public String wordList;
+
+	/**
+	 * The number of words in the subset, capped at the size of the word list.
+	 */
+	@Param({"16", "128", "1024"})
+	public int subsetSize;
+
+	private String[] words;
+	private HeuristicGenerator gen;
+	private HeuristicParams params;
+	private Random rnd;
+	private int[] subset;
+	private HashSet<String> subsetWords;
+	private String guess;
+
+	@Setup(Level.Trial)
+	public void setup() {
+		words = WordLists.get(wordList);
+		gen = new HeuristicGenerator(words, 1);
+		params = new HeuristicParams();
+		rnd = new Random(1);
+		// a random subset, as it occurs deeper in the tree
+		int[] all = new int[words.length];
+		for (int i = 0; i < all.length; i++) all[i] = i;
+		Random shuffle = new Random(2);
+		for (int i = all.length - 1; i > 0; i--) {
+			int j = shuffle.nextInt(i + 1);
+			int tmp = all[i];
+			all[i] = all[j];
+			all[j] = tmp;
+		}
+		subset = Arrays.copyOf(all, Math.min(subsetSize, all.length));
+		Arrays.sort(subset);
+		subsetWords = new HashSet<String>();
+		for (int w : subset) subsetWords.add(words[w]);
+		int choice = gen.heuristicForIndices(subset, params, new Random(3));
+		guess = (choice >= 0) ? TipTable.forWords(words).tips[choice] : words[-choice - 1];
+	}
+
+	@Benchmark
+	public int heuristic() {
+		return gen.heuristicForIndices(subset, params, rnd);
+	}
+
+	@Benchmark
+	public int[][] computePartitions() {
+		return gen.computePartitions(subset, guess);
+	}
+
+	@Benchmark
+	public HashSet<String>[] computePartitionsHashSet() {
+		return HeuristicGenerator.computePartitions(subsetWords, guess);
+	}
+}
@@ -0,0 +1,57 @@
+package wordGuesserGenerator;
+
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Benchmarks finding the useful tips of a word list and classifying the words, which happens once per word list.
+ *
+ * @author libraun
+ *
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 2, time = 5)
+@Measurement(iterations = 3, time = 5)
+@Fork(1)
+public class TipBenchmark {
+
+	/**
+	 * "sample" for the checked-in word list, otherwise the size of a synthetic word list.
+	 */
+	@Param({"sample", "2000"})
+	public String wordList;
+
+	/**
+	 * The maximum length of a tip.
+	 */
+	@Param({"3", "4"})
+	public int maxTipLength;
+
+	private String[] words;
+
+	@Setup
+	public void setup() {
+		words = WordLists.get(wordList);
+	}
+
+	/**
+	 * Builds the n-gram index and the tip table, without the cache of {@link TipTable#forWords(String[], int)}.
+	 */
+	@Benchmark
+	public TipTable buildTipTable() {
+		return TipTable.build(words, maxTipLength);
+	}
+}
@@ -0,0 +1,89 @@
+package wordGuesserGenerator;
+
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Benchmarks the operations the generator performs on whole guess trees for every mutation.
+ *
+ * @author libraun
+ *
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class TreeBenchmark {
+
+	/**
+	 * "sample" for the checked-in word list, otherwise the size of a synthetic word list.
+	 */
+	@Param({"sample", "2000"})
+	public String wordList;
+
+	private String[] words;
+	private String[] wordsCopy;
+	private GeneratedGuessNode root;
+	private String serialized;
+	private String[] serializedLines;
+
+	@Setup
+	public void setup() throws Exception {
+		words = WordLists.get(wordList);
+		wordsCopy = words.clone();
+		Generator g = new Generator(new HashSet<String>(Arrays.asList(words)), 1);
+		root = g.generateGuessTreeRandomized(1, new HeuristicParams());
+		root.calcAverage(words);
+		serialized = root.serializeGuessTree();
+		serializedLines = serialized.split("\n");
+	}
+
+	/**
+	 * The average of an unchanged tree, answered from the cache.
+	 */
+	@Benchmark
+	public double calcAverageCached() throws Exception {
+		return root.calcAverage(words);
+	}
+
+	/**
+	 * The average of the whole tree, computed from scratch: a different word array invalidates the cache.
+	 */
+	@Benchmark
+	public double calcAverageFull() throws Exception {
+		String[] w = wordsCopy;
+		wordsCopy = words;
+		words = w;
+		return root.calcAverage(w);
+	}
+
+	@Benchmark
+	public GeneratedGuessNode cloneTree() {
+		return root.clone();
+	}
+
+	@Benchmark
+	public String serializeGuessTree() {
+		return root.serializeGuessTree();
+	}
+
+	@Benchmark
+	public GeneratedGuessNode deserializeGuessTree() {
+		return GeneratedGuessNode.deserializeGuessTree(serializedLines);
+	}
+}
@@ -0,0 +1,74 @@
+package wordGuesserGenerator;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.LinkedHashSet;
+import java.util.Random;
+
+/**
+ * Word lists for the benchmarks: the checked-in sample list and synthetic lists of any size.
+ *
+ * @author libraun
+ *
+ */
+final class WordLists {
+	private static final String[] ONSETS = {"", "b", "br", "d", "f", "fl", "g", "h", "k", "kl", "l", "m", "n", "p", "pf",
+			"r", "s", "sch", "sp", "st", "t", "tr", "w", "z"};
+	private static final String[] VOWELS = {"a", "e", "i", "o", "u", "ä", "ö", "ü", "ei", "au", "ie", "eu"};
+	private static final String[] CODAS = {"", "", "n", "r", "l", "s", "t", "ch", "ng", "nd", "rt", "ck", "m"};
+
+	private WordLists() {}
+
+	/**
+	 * @param name "sample" for the checked-in list, or the number of words of a synthetic list.
+	 * @return The word list.
+	 */
+	static String[] get(String name) {
+		if (name.equals("sample")) return sample();
+		return synthetic(Integer.parseInt(name), 42);
+	}
+
+	/**
+	 * @return The checked-in sample list (in the same format as woerter.txt).
+	 */
+	static String[] sample() {
+		try (InputStream in = WordLists.class.getResourceAsStream("/sample-words.txt");
+				BufferedReader r = new BufferedReader(new InputStreamReader(in, StandardCharsets.UTF_8))) {
+			ArrayList<String> words = new ArrayList<String>();
+			r.readLine(); // word count
+			for (String line = r.readLine(); line != null; line = r.readLine()) {
+				if (!line.isEmpty()) words.add(line);
+			}
+			return words.toArray(new String[words.size()]);
+		} catch (IOException e) {
+			throw new UncheckedIOException(e);
+		}
+	}
+
+	/**
+	 * Generates distinct German-looking words out of random syllables.
+	 * @param count The number of words.
+	 * @param seed The seed, the same seed always gives the same list.
+	 * @return The word list.
+	 */
+	static String[] synthetic(int count, long seed) {
+		Random r = new Random(seed);
+		LinkedHashSet<String> words = new LinkedHashSet<String>();
+		while (words.size() < count) {
+			StringBuilder w = new StringBuilder();
+			int syllables = 1 + r.nextInt(3);
+			for (int i = 0; i < syllables; i++) {
+				w.append(ONSETS[r.nextInt(ONSETS.length)]);
+				w.append(VOWELS[r.nextInt(VOWELS.length)]);
+				w.append(CODAS[r.nextInt(CODAS.length)]);
+			}
+			if (w.length() >= 3) words.add(w.toString());
+		}
+		return words.toArray(new String[words.size()]);
+	}
+}
@@ -0,0 +1,302 @@
+package wordGuesserGenerator;
+
+import java.util.Arrays;
+import java.util.Random;
+
+/**
+ * Decides whether the iterative improvement keeps a mutated guess tree. Accepting some worse trees
+ * lets a generator leave local optima; the best tree found is then kept separately.
+ * Policies may have state (e.g. the current temperature), so every generator needs its own instance.
+ *
+ * @author libraun
+ *
+ */
+public interface AcceptancePolicy {
+
+	/**
+	 * Decides about one mutation. Called exactly once per mutation.
+	 * @param currentAvg The average of the tree before the mutation.
+	 * @param newAvg The average of the mutated tree.
+	 * @param r The random number generator of the generator.
+	 * @return If the mutated tree is kept.
+	 */
+	boolean accept(double currentAvg, double newAvg, Random r);
+
+	/**
+	 * @return If the policy never accepts a worse tree, in which case the current tree is always the best one.
+	 */
+	boolean isGreedy();
+
+	/**
+	 * Starts the schedule over, e.g. when the generator starts again from a new tree.
+	 */
+	void reset();
+
+	/**
+	 * @return The state of the schedule, e.g. to write it to an {@link IslandCheckpoint}.
+	 */
+	double[] getState();
+
+	/**
+	 * Continues the schedule from a state returned by {@link #getState()} of a policy of the same kind.
+	 * @param state The state.
+	 * @throws IllegalArgumentException If the state doesn't fit this policy.
+	 */
+	void setState(double[] state);
+
+	/**
+	 * Creates a policy from a description, as used by the --accept option of {@link GeneratorCLI}:
+	 * <ul>
+	 * <li>{@code greedy}: only keeps trees which are not worse (the default),</li>
+	 * <li>{@code anneal[:<t0>[:<cooling>]]}: simulated annealing,</li>
+	 * <li>{@code threshold[:<t0>[:<cooling>]]}: threshold accepting,</li>
+	 * <li>{@code late[:<length>]}: late acceptance hill climbing.</li>
+	 * </ul>
+	 * Temperatures and thresholds are differences of the average number of guesses.
+	 * @param spec The description.
+	 * @return A new policy.
+	 * @throws IllegalArgumentException If the description is invalid.
+	 */
+	static AcceptancePolicy parse(String spec) {
+		String[] parts = spec.split(":");
+		double[] args = new double[parts.length - 1];
+		for (int i = 1; i < parts.length; i++) {
+			args[i - 1] = Double.parseDouble(parts[i]);
+		}
+		switch (parts[0]) {
+		case "greedy":
+			if (args.length == 0) return new Greedy();
+			break;
+		case "anneal":
+			if (args.length <= 2) {
+				return new SimulatedAnnealing(arg(args, 0, SimulatedAnnealing.DEFAULT_T0),
+						arg(args, 1, SimulatedAnnealing.DEFAULT_COOLING));
+			}
+			break;
+		case "threshold":
+			if (args.length <= 2) {
+				return new ThresholdAccepting(arg(args, 0, ThresholdAccepting.DEFAULT_T0),
+						arg(args, 1, ThresholdAccepting.DEFAULT_COOLING));
+			}
+			break;
+		case "late":
+			if (args.length <= 1) {
+				return new LateAcceptance((int) arg(args, 0, LateAcceptance.DEFAULT_LENGTH));
+			}
+			break;
+		}
+		throw new IllegalArgumentException("Unknown acceptance policy " + spec);
+	}
+
+	// the i-th argument, or the default value if there is none
+	private static double arg(double[] args, int i, double defaultValue) {
+		return (i < args.length) ? args[i] : defaultValue;
+	}
+
+	/**
+	 * Keeps a mutation only if the tree doesn't get worse.
+	 */
+	class Greedy implements AcceptancePolicy {
+		@Override
+		public boolean accept(double currentAvg, double newAvg, Random r) {
+			return newAvg <= currentAvg;
+		}
+
+		@Override
+		public boolean isGreedy() {
+			return true;
+		}
+
+		@Override
+		public void reset() {
+		}
+
+		@Override
+		public double[] getState() {
+			return new double[0];
+		}
+
+		@Override
+		public void setState(double[] state) {
+			if (state.length != 0) throw new IllegalArgumentException("Invalid greedy state");
+		}
+	}
+
+	/**
+	 * Keeps a worse tree with probability exp(-difference / temperature). The temperature starts at t0
+	 * and is multiplied with the cooling factor after every mutation.
+	 */
+	class SimulatedAnnealing implements AcceptancePolicy {
+		/**
+		 * The default start temperature, about 2.5 guesses in total for a list of 1200 words.
+		 */
+		public static final double DEFAULT_T0 = 0.002;
+		/**
+		 * The default cooling factor, which lowers the temperature by a factor of 100 in about 90000 mutations.
+		 */
+		public static final double DEFAULT_COOLING = 0.99995;
+
+		private final double t0;
+		private double temperature;
+		private final double cooling;
+
+		/**
+		 * @param t0 The start temperature.
+		 * @param cooling The factor applied to the temperature after every mutation, at most 1.
+		 */
+		public SimulatedAnnealing(double t0, double cooling) {
+			if (t0 < 0 || cooling <= 0 || cooling > 1) throw new IllegalArgumentException("Invalid annealing schedule");
+			this.t0 = t0;
+			this.temperature = t0;
+			this.cooling = cooling;
+		}
+
+		@Override
+		public boolean accept(double currentAvg, double newAvg, Random r) {
+			double diff = newAvg - currentAvg;
+			boolean accepted = diff <= 0 || (temperature > 0 && r.nextDouble() < Math.exp(-diff / temperature));
+			temperature *= cooling;
+			return accepted;
+		}
+
+		@Override
+		public boolean isGreedy() {
+			return false;
+		}
+
+		@Override
+		public void reset() {
+			temperature = t0;
+		}
+
+		@Override
+		public double[] getState() {
+			return new double[] {temperature};
+		}
+
+		@Override
+		public void setState(double[] state) {
+			if (state.length != 1 || !(state[0] >= 0)) throw new IllegalArgumentException("Invalid annealing state");
+			temperature = state[0];
+		}
+	}
+
+	/**
+	 * Keeps a worse tree if it is worse by less than a threshold, which starts at t0
+	 * and is multiplied with the cooling factor after every mutation.
+	 */
+	class ThresholdAccepting implements AcceptancePolicy {
+		/**
+		 * The default start threshold, about 1 guess in total for a list of 1200 words.
+		 */
+		public static final double DEFAULT_T0 = 0.001;
+		/**
+		 * The default cooling factor, which lowers the threshold by a factor of 100 in about 90000 mutations.
+		 */
+		public static final double DEFAULT_COOLING = 0.99995;
+
+		private final double t0;
+		private double threshold;
+		private final double cooling;
+
+		/**
+		 * @param t0 The start threshold.
+		 * @param cooling The factor applied to the threshold after every mutation, at most 1.
+		 */
+		public ThresholdAccepting(double t0, double cooling) {
+			if (t0 < 0 || cooling <= 0 || cooling > 1) throw new IllegalArgumentException("Invalid threshold schedule");
+			this.t0 = t0;
+			this.threshold = t0;
+			this.cooling = cooling;
+		}
+
+		@Override
+		public boolean accept(double currentAvg, double newAvg, Random r) {
+			boolean accepted = newAvg - currentAvg <= threshold;
+			threshold *= cooling;
+			return accepted;
+		}
+
+		@Override
+		public boolean isGreedy() {
+			return false;
+		}
+
+		@Override
+		public void reset() {
+			threshold = t0;
+		}
+
+		@Override
+		public double[] getState() {
+			return new double[] {threshold};
+		}
+
+		@Override
+		public void setState(double[] state) {
+			if (state.length != 1 || !(state[0] >= 0)) throw new IllegalArgumentException("Invalid threshold state");
+			threshold = state[0];
+		}
+	}
+
+	/**
+	 * Late acceptance hill climbing: keeps a tree if it isn't worse than the current tree
+	 * or than the current tree was a fixed number of mutations ago.
+	 */
+	class LateAcceptance implements AcceptancePolicy {
+		/**
+		 * The default number of mutations to look back.
+		 */
+		public static final int DEFAULT_LENGTH = 500;
+
+		private final double[] history;
+		private long mutations = 0;
+
+		/**
+		 * @param length The number of mutations to look back.
+		 */
+		public LateAcceptance(int length) {
+			if (length < 1) throw new IllegalArgumentException("Invalid late acceptance length");
+			history = new double[length];
+			reset();
+		}
+
+		@Override
+		public boolean accept(double currentAvg, double newAvg, Random r) {
+			int v = (int) (mutations++ % history.length);
+			if (history[v] == Double.POSITIVE_INFINITY) history[v] = currentAvg;
+			boolean accepted = newAvg <= currentAvg || newAvg <= history[v];
+			history[v] = accepted ? newAvg : currentAvg;
+			return accepted;
+		}
+
+		@Override
+		public boolean isGreedy() {
+			return false;
+		}
+
+		@Override
+		public void reset() {
+			Arrays.fill(history, Double.POSITIVE_INFINITY); // filled with the first averages
+			mutations = 0;
+		}
+
+		// the number of mutations, followed by the history
+		@Override
+		public double[] getState() {
+			double[] state = new double[history.length + 1];
+			state[0] = mutations;
+			System.arraycopy(history, 0, state, 1, history.length);
+			return state;
+		}
+
+		@Override
+		public void setState(double[] state) {
+			if (state.length != history.length + 1 || !(state[0] >= 0) || state[0] != Math.rint(state[0])) {
+				throw new IllegalArgumentException("Invalid late acceptance state");
+			}
+			mutations = (long) state[0];
+			System.arraycopy(state, 1, history, 0, history.length);
+		}
+	}
+}
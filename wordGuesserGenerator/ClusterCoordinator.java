@@ -0,0 +1,397 @@
+package wordGuesserGenerator;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.net.ServerSocket;
+import java.net.Socket;
+import java.nio.file.Paths;
+import java.text.DecimalFormat;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Runs a generator across several processes or machines. The coordinator listens for {@link ClusterWorker}s,
+ * hands every worker the word list and its settings, and collects the trees the workers improve.
+ * Every received tree is checked by calculating its (weighted) average again; the best one is sent to all other workers,
+ * which let their generators adopt it. When the time is up, the workers are stopped and the best tree is saved.
+ *
+ * @author libraun
+ *
+ */
+public class ClusterCoordinator {
+
+	private static final String USAGE =
+			"Usage: java wordGuesserGenerator.ClusterCoordinator [options] <word list>\n" +
+			"Options:\n" +
+			"  --port <port>       port to listen on for workers (default: 4711)\n" +
+			"  --time <seconds>    stop the workers after this much wall-clock time (required)\n" +
+			"  --iterations <n>    stop each generator of a worker after this many mutations\n" +
+			"  --seed <seed>       seed for the workers, each gets a different one (default: random)\n" +
+			"  --out <file>        where to save the best guess tree (default: alg.bin)\n" +
+			"  --progress <secs>   interval of the progress output (default: 10)\n" +
+			"  --migration-interval <n>  mutations between exchanging trees within a worker and with the coordinator (default: 500)\n" +
+			"  --max-tip-length <n>  longest tips to consider, in characters (default: 3)\n" +
+			"  --weights <file>    how often each word is drawn, one \"word weight\" per line, or none\n" +
+			"                      (default: " + WordWeights.FILE_NAME + " next to the word list, if there is one)";
+
+	/**
+	 * The default port of the coordinator.
+	 */
+	public static final int DEFAULT_PORT = 4711;
+
+	private final String[] words;
+	private final WordWeights weights;
+	private final Long seed;
+	private final int maxTipLength;
+	private final int migrationInterval;
+	private final long iterationBudget;
+
+	private final List<Connection> connections = new ArrayList<Connection>();
+	private int workersSeen = 0;
+	private GeneratedGuessNode best = null;
+	private double bestAvg = Double.POSITIVE_INFINITY;
+	private DecimalFormat df = new DecimalFormat("#.000");
+
+	// A connected worker. Messages to it are written while holding the lock of out.
+	private class Connection extends Thread {
+		private final Socket socket;
+		private final DataInputStream in;
+		private final DataOutputStream out;
+		private final int index;
+
+		Connection(Socket socket, int index) throws IOException {
+			this.socket = socket;
+			this.index = index;
+			in = new DataInputStream(new BufferedInputStream(socket.getInputStream()));
+			out = new DataOutputStream(new BufferedOutputStream(socket.getOutputStream()));
+			setDaemon(true);
+		}
+
+		@Override
+		public void run() {
+			try {
+				if (in.readByte() != ClusterProtocol.HELLO || in.readInt() != ClusterProtocol.VERSION) {
+					throw new IOException("Unknown protocol");
+				}
+				int islands = in.readInt();
+				log("Worker " + index + " connected from " + socket.getRemoteSocketAddress() + " with " + islands + " generators");
+				assign();
+				while (true) {
+					byte type = in.readByte();
+					if (type != ClusterProtocol.IMPROVED) throw new IOException("Unexpected message " + type);
+					double avg = in.readDouble();
+					received(this, ClusterProtocol.readTree(in), avg);
+				}
+			} catch (IOException e) {
+				log("Worker " + index + " disconnected: " + e);
+			} finally {
+				remove(this);
+				close();
+			}
+		}
+
+		private void assign() throws IOException {
+			synchronized (out) {
+				out.writeByte(ClusterProtocol.ASSIGN);
+				// far apart, so that the seeds of the generators of different workers (seed + generator) don't overlap
+				out.writeLong((seed == null) ? ClusterProtocol.NO_SEED : seed + index * 1000003L);
+				out.writeInt(maxTipLength);
+				out.writeInt(migrationInterval);
+				out.writeLong(iterationBudget);
+				out.writeInt(words.length);
+				for (String w : words) {
+					out.writeUTF(w);
+				}
+				out.writeBoolean(weights != null);
+				if (weights != null) {
+					for (String w : words) {
+						out.writeDouble(weights.weightOf(w));
+					}
+				}
+				out.flush();
+			}
+			GeneratedGuessNode tree;
+			double avg;
+			synchronized (ClusterCoordinator.this) {
+				tree = best;
+				avg = bestAvg;
+			}
+			// a worker joining late starts from the best tree found so far
+			if (tree != null) send(ClusterProtocol.BEST, tree, avg);
+		}
+
+		void send(byte type, GeneratedGuessNode tree, double avg) {
+			try {
+				synchronized (out) {
+					if (type == ClusterProtocol.STOP) {
+						out.writeByte(type);
+						out.flush();
+					} else {
+						ClusterProtocol.writeTree(out, type, avg, tree);
+					}
+				}
+			} catch (IOException e) {
+				// the reading side notices as well and removes the connection
+				close();
+			}
+		}
+
+		void close() {
+			try {
+				socket.close();
+			} catch (IOException e) { e.printStackTrace(); }
+		}
+	}
+
+	/**
+	 * Constructs a coordinator.
+	 * @param words The word list, duplicates are preserved.
+	 * @param weights The weights of the words, or null to weigh them the same.
+	 * @param seed The seed for the workers, or null for random seeds.
+	 * @param maxTipLength The maximum length of the tips to consider, in code points.
+	 * @param migrationInterval After how many mutations the generators of a worker exchange trees.
+	 * @param iterationBudget After how many mutations the generators of a worker finish, -1 for no limit.
+	 */
+	public ClusterCoordinator(String[] words, WordWeights weights, Long seed, int maxTipLength, int migrationInterval, long iterationBudget) {
+		this.words = words;
+		this.weights = weights;
+		this.seed = seed;
+		this.maxTipLength = maxTipLength;
+		this.migrationInterval = migrationInterval;
+		this.iterationBudget = iterationBudget;
+	}
+
+	/**
+	 * Accepts workers on a server socket until it is closed. Each worker is served on its own thread.
+	 * @param server The server socket.
+	 */
+	public void acceptWorkers(ServerSocket server) {
+		while (!server.isClosed()) {
+			try {
+				Socket socket = server.accept();
+				socket.setTcpNoDelay(true);
+				Connection c;
+				synchronized (this) {
+					c = new Connection(socket, workersSeen++);
+					connections.add(c);
+				}
+				c.start();
+			} catch (IOException e) {
+				if (!server.isClosed()) e.printStackTrace();
+			}
+		}
+	}
+
+	// checks a tree of a worker and sends it to all other workers if it is the new best
+	private void received(Connection from, GeneratedGuessNode tree, double claimedAvg) {
+		double avg;
+		try {
+			avg = tree.calcAverage(words, weights);
+		} catch (Exception e) {
+			log("Rejected tree of worker " + from.index + ": " + e.getMessage());
+			return;
+		}
+		if (Math.abs(avg - claimedAvg) > 1e-9) {
+			log("Rejected tree of worker " + from.index + ": average is " + avg + ", not " + claimedAvg);
+			return;
+		}
+		List<Connection> others;
+		synchronized (this) {
+			if (avg >= bestAvg) return;
+			best = tree;
+			bestAvg = avg;
+			others = new ArrayList<Connection>(connections);
+		}
+		log("New best average " + df.format(avg) + " from worker " + from.index);
+		for (Connection c : others) {
+			if (c != from) c.send(ClusterProtocol.BEST, tree, avg);
+		}
+	}
+
+	private synchronized void remove(Connection c) {
+		connections.remove(c);
+	}
+
+	/**
+	 * @return The best tree received so far, or null.
+	 */
+	public synchronized GeneratedGuessNode getBest() {
+		return best;
+	}
+
+	/**
+	 * @return The average of the best tree received so far.
+	 */
+	public synchronized double getBestAvg() {
+		return bestAvg;
+	}
+
+	/**
+	 * @return If at least one worker connected and all workers have disconnected since.
+	 */
+	public synchronized boolean allWorkersFinished() {
+		return workersSeen > 0 && connections.isEmpty();
+	}
+
+	/**
+	 * Tells all workers to stop. They send their last improvements and disconnect.
+	 */
+	public void stopWorkers() {
+		List<Connection> all;
+		synchronized (this) {
+			all = new ArrayList<Connection>(connections);
+		}
+		for (Connection c : all) {
+			c.send(ClusterProtocol.STOP, null, 0);
+		}
+	}
+
+	private static void log(String message) {
+		System.out.println(message);
+	}
+
+	/**
+	 * Runs the coordinator.
+	 * @param args See {@link #USAGE}.
+	 */
+	public static void main(String[] args) {
+		int port = DEFAULT_PORT;
+		long timeBudget = -1;
+		long iterationBudget = -1;
+		Long seed = null;
+		String outPath = "alg.bin";
+		long progressInterval = 10;
+		int migrationInterval = 500;
+		int maxTipLength = TipTable.DEFAULT_MAX_TIP_LENGTH;
+		String weightsPath = null;
+		String wordListPath = null;
+
+		try {
+			for (int i = 0; i < args.length; i++) {
+				switch (args[i]) {
+				case "--port":
+					port = Integer.parseInt(args[++i]);
+					break;
+				case "--time":
+					timeBudget = Long.parseLong(args[++i]);
+					break;
+				case "--iterations":
+					iterationBudget = Long.parseLong(args[++i]);
+					break;
+				case "--seed":
+					seed = Long.parseLong(args[++i]);
+					break;
+				case "--out":
+					outPath = args[++i];
+					break;
+				case "--progress":
+					progressInterval = Long.parseLong(args[++i]);
+					break;
+				case "--migration-interval":
+					migrationInterval = Integer.parseInt(args[++i]);
+					break;
+				case "--max-tip-length":
+					maxTipLength = Integer.parseInt(args[++i]);
+					break;
+				case "--weights":
+					weightsPath = args[++i];
+					break;
+				default:
+					if (args[i].startsWith("--") || wordListPath != null) {
+						throw new IllegalArgumentException("Unknown argument " + args[i]);
+					}
+					wordListPath = args[i];
+				}
+			}
+		} catch (RuntimeException e) {
+			System.err.println(e.getMessage());
+			wordListPath = null;
+		}
+		if (wordListPath == null || timeBudget < 0 || maxTipLength < 1 || migrationInterval < 1) {
+			System.err.println(USAGE);
+			System.exit(2);
+		}
+
+		String[] words;
+		WordWeights weights;
+		try {
+			words = Generator.readWordList(wordListPath);
+			if (weightsPath == null) {
+				weights = WordWeights.loadNextTo(Paths.get(wordListPath));
+			} else {
+				weights = weightsPath.equals("none") ? null : WordWeights.load(Paths.get(weightsPath));
+			}
+		} catch (IOException e) {
+			e.printStackTrace();
+			System.exit(1);
+			return;
+		}
+
+		final ClusterCoordinator coordinator = new ClusterCoordinator(words, weights, seed, maxTipLength, migrationInterval, iterationBudget);
+		final ServerSocket server;
+		try {
+			server = new ServerSocket(port);
+		} catch (IOException e) {
+			e.printStackTrace();
+			System.exit(1);
+			return;
+		}
+		Thread acceptor = new Thread() {
+			@Override
+			public void run() {
+				coordinator.acceptWorkers(server);
+			}
+		};
+		acceptor.setDaemon(true);
+		acceptor.start();
+		log("Waiting for workers on port " + server.getLocalPort() + " (" + words.length + " words" +
+				((weights == null) ? ")" : ", weighted)"));
+
+		long start = System.currentTimeMillis();
+		long deadline = start + timeBudget * 1000;
+		long nextProgress = start + progressInterval * 1000;
+		DecimalFormat df = new DecimalFormat("#.000");
+		while (System.currentTimeMillis() < deadline && !coordinator.allWorkersFinished()) {
+			try {
+				Thread.sleep(Math.max(1, Math.min(100, deadline - System.currentTimeMillis())));
+			} catch (InterruptedException e) {
+				break;
+			}
+			if (System.currentTimeMillis() >= nextProgress) {
+				nextProgress += progressInterval * 1000;
+				double best = coordinator.getBestAvg();
+				log("[" + (System.currentTimeMillis() - start) / 1000 + "s] best average: " +
+						((best == Double.POSITIVE_INFINITY) ? "(none yet)" : df.format(best)));
+			}
+		}
+
+		try {
+			server.close();
+		} catch (IOException e) { e.printStackTrace(); }
+		coordinator.stopWorkers();
+		// give the workers a moment to send their last improvements
+		long stopDeadline = System.currentTimeMillis() + 10000;
+		while (!coordinator.allWorkersFinished() && System.currentTimeMillis() < stopDeadline) {
+			try {
+				Thread.sleep(50);
+			} catch (InterruptedException e) {
+				break;
+			}
+		}
+
+		if (coordinator.getBest() == null) {
+			System.err.println("No guess tree was received.");
+			System.exit(1);
+		}
+		try {
+			GuessTreeIO.save(coordinator.getBest(), Paths.get(outPath));
+		} catch (IOException e) {
+			e.printStackTrace();
+			System.exit(1);
+		}
+		log("Saved guess tree with average " + df.format(coordinator.getBestAvg()) + " to " + outPath);
+	}
+}
@@ -0,0 +1,75 @@
+package wordGuesserGenerator;
+
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.Channels;
+
+/**
+ * The messages exchanged between {@link ClusterCoordinator} and {@link ClusterWorker} over a socket.
+ * Every message starts with its type (a byte) and is written with DataOutputStream:
+ * <ul>
+ * <li>{@link #HELLO} (worker): the protocol version and the number of generators of the worker (ints).</li>
+ * <li>{@link #ASSIGN} (coordinator): the seed of the worker (a long, or {@link #NO_SEED}), the maximum tip length,
+ * the migration interval (ints), the iteration budget per generator (a long, -1 if none), followed by the word list
+ * as number of words and every word with writeUTF, and whether there are word weights (a boolean), followed by
+ * the weight of every word (doubles) if there are.</li>
+ * <li>{@link #IMPROVED} (worker) and {@link #BEST} (coordinator): the average of a tree (a double) followed by
+ * the tree in the binary format of {@link GuessTreeIO}, prefixed by its length in bytes.</li>
+ * <li>{@link #STOP} (coordinator): no content.</li>
+ * </ul>
+ *
+ * @author libraun
+ *
+ */
+final class ClusterProtocol {
+	static final int VERSION = 2;
+
+	static final byte HELLO = 0;
+	static final byte ASSIGN = 1;
+	static final byte IMPROVED = 2;
+	static final byte BEST = 3;
+	static final byte STOP = 4;
+
+	static final long NO_SEED = Long.MIN_VALUE;
+
+	// larger trees than this are rejected instead of allocating the memory
+	private static final int MAX_TREE_BYTES = 64 << 20;
+
+	private ClusterProtocol() {
+	}
+
+	/**
+	 * Writes a tree message. The caller must synchronize on the stream if several threads write to it.
+	 * @param out The stream, which is flushed afterwards.
+	 * @param type {@link #IMPROVED} or {@link #BEST}.
+	 * @param avg The average number of guesses of the tree.
+	 * @param tree The tree.
+	 * @throws IOException If writing failed.
+	 */
+	static void writeTree(DataOutputStream out, byte type, double avg, GeneratedGuessNode tree) throws IOException {
+		ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+		GuessTreeIO.write(tree, Channels.newChannel(bytes));
+		out.writeByte(type);
+		out.writeDouble(avg);
+		out.writeInt(bytes.size());
+		bytes.writeTo(out);
+		out.flush();
+	}
+
+	/**
+	 * Reads the tree of a tree message, after its type and average.
+	 * @param in The stream.
+	 * @return The tree.
+	 * @throws IOException If reading failed or the tree is corrupt.
+	 */
+	static GeneratedGuessNode readTree(DataInputStream in) throws IOException {
+		int length = in.readInt();
+		if (length <= 0 || length > MAX_TREE_BYTES) throw new IOException("Invalid tree length " + length);
+		byte[] bytes = new byte[length];
+		in.readFully(bytes);
+		return GuessTreeIO.read(ByteBuffer.wrap(bytes));
+	}
+}
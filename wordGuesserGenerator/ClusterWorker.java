@@ -0,0 +1,262 @@
+package wordGuesserGenerator;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.net.Socket;
+import java.text.DecimalFormat;
+import java.util.HashMap;
+
+/**
+ * Runs generators for a {@link ClusterCoordinator}. The worker gets the word list and its settings from the
+ * coordinator, sends it every improvement of its best tree and lets its generators adopt the best trees of the other workers.
+ * It finishes when the coordinator tells it to stop, when the connection is lost or when its generators have used up
+ * their iteration budget.
+ *
+ * @author libraun
+ *
+ */
+public class ClusterWorker {
+
+	private static final String USAGE =
+			"Usage: java wordGuesserGenerator.ClusterWorker [options] <host>[:<port>]\n" +
+			"Options:\n" +
+			"  --threads <n>       number of threads to run the generators on (default: number of processors)\n" +
+			"  --islands <n>       number of generators, which take turns on the threads (default: number of threads)\n" +
+			"  --parallel-cutoff <n>  generate subtrees of at least n words in parallel (default: 0 = off)\n" +
+			"  --parallel-scoring <n> score the tips of nodes with at least n words in parallel (default: 0 = off)";
+
+	// how often the best tree of the worker is checked for improvements
+	private static final long PUSH_INTERVAL_MILLIS = 200;
+
+	private final DataInputStream in;
+	private final DataOutputStream out;
+	private final GeneratorInterface[] gens;
+	private final IslandScheduler scheduler;
+	private final IslandExchange exchange;
+	private final String[] words;
+
+	private volatile boolean stopRequested = false;
+	// the best average known to the coordinator, either sent to it or received from it
+	private double knownAvg = Double.POSITIVE_INFINITY;
+	private DecimalFormat df = new DecimalFormat("#.000");
+
+	/**
+	 * Connects to the coordinator and sets up the generators as it says, without starting them.
+	 * @param socket The connection to the coordinator.
+	 * @param numThreads The number of threads to run the generators on.
+	 * @param numIslands The number of generators.
+	 * @param parallelCutoff See {@link GeneratorInterface#setParallelCutoff(int)}.
+	 * @param parallelScoring See {@link GeneratorInterface#setParallelScoringMinWords(int)}.
+	 * @throws IOException If the coordinator couldn't be reached or sent something unexpected.
+	 */
+	public ClusterWorker(Socket socket, int numThreads, int numIslands, int parallelCutoff, int parallelScoring) throws IOException {
+		in = new DataInputStream(new BufferedInputStream(socket.getInputStream()));
+		out = new DataOutputStream(new BufferedOutputStream(socket.getOutputStream()));
+		synchronized (out) {
+			out.writeByte(ClusterProtocol.HELLO);
+			out.writeInt(ClusterProtocol.VERSION);
+			out.writeInt(numIslands);
+			out.flush();
+		}
+
+		if (in.readByte() != ClusterProtocol.ASSIGN) throw new IOException("Expected the settings of the worker");
+		long seed = in.readLong();
+		int maxTipLength = in.readInt();
+		int migrationInterval = in.readInt();
+		long iterationBudget = in.readLong();
+		words = new String[in.readInt()];
+		for (int i = 0; i < words.length; i++) {
+			words[i] = in.readUTF();
+		}
+		WordWeights weights = null;
+		if (in.readBoolean()) {
+			HashMap<String, Double> map = new HashMap<String, Double>();
+			for (String w : words) {
+				map.put(w, in.readDouble());
+			}
+			try {
+				weights = new WordWeights(map);
+			} catch (IllegalArgumentException e) {
+				throw new IOException(e.getMessage(), e);
+			}
+		}
+
+		gens = new GeneratorInterface[numIslands];
+		exchange = new IslandExchange(numIslands, migrationInterval);
+		scheduler = new IslandScheduler(numThreads);
+		ParamTuner prePhaseTuner = ParamTuner.forPrePhase();
+		ParamTuner improvementTuner = ParamTuner.forImprovement();
+		for (int i = 0; i < gens.length; i++) {
+			gens[i] = (seed == ClusterProtocol.NO_SEED) ? new GeneratorInterface() : new GeneratorInterface(seed + i);
+			gens[i].setWordList(words);
+			gens[i].setWordWeights(weights);
+			gens[i].setParallelCutoff(parallelCutoff);
+			gens[i].setParallelScoringMinWords(parallelScoring);
+			gens[i].setExchange(exchange, i);
+			gens[i].setParamTuners(prePhaseTuner, improvementTuner);
+			gens[i].setMaxTipLength(maxTipLength);
+			if (iterationBudget >= 0) {
+				gens[i].setIterationBudget(iterationBudget);
+			}
+			gens[i].toggleGenRunning();
+		}
+	}
+
+	/**
+	 * Runs the generators until the worker finishes, then sends the best tree a last time.
+	 * @throws IOException If the connection to the coordinator failed.
+	 */
+	public void run() throws IOException {
+		for (GeneratorInterface gen : gens) {
+			scheduler.submit(gen);
+		}
+		System.out.println("Started " + gens.length + " generators on " + words.length + " words.");
+		Thread reader = new Thread() {
+			@Override
+			public void run() {
+				receive();
+			}
+		};
+		reader.setDaemon(true);
+		reader.start();
+
+		try {
+			while (!stopRequested && anyRunning()) {
+				try {
+					Thread.sleep(PUSH_INTERVAL_MILLIS);
+				} catch (InterruptedException e) {
+					break;
+				}
+				// the generators publish their improvements to the exchange when they migrate
+				IslandExchange.Migrant m = exchange.getBest();
+				if (m != null && m.island >= 0 && m.avg < knownAvg()) push(m.copyTree(), m.avg);
+			}
+		} finally {
+			for (GeneratorInterface gen : gens) {
+				gen.stop();
+			}
+			for (GeneratorInterface gen : gens) {
+				try {
+					gen.awaitFinished();
+				} catch (InterruptedException e) { e.printStackTrace(); }
+			}
+			scheduler.shutdown();
+		}
+		// the generators may have improved since they last migrated
+		for (GeneratorInterface gen : gens) {
+			if (gen.getBestAlg() != null) push(gen.getBestAlg(), gen.getBestAlgAvg());
+		}
+	}
+
+	private double knownAvg() {
+		synchronized (out) {
+			return knownAvg;
+		}
+	}
+
+	// sends a tree to the coordinator if it doesn't know a better one
+	private void push(GeneratedGuessNode tree, double avg) throws IOException {
+		synchronized (out) {
+			if (avg >= knownAvg) return;
+			knownAvg = avg;
+			ClusterProtocol.writeTree(out, ClusterProtocol.IMPROVED, avg, tree);
+		}
+		System.out.println("Sent tree with average " + df.format(avg));
+	}
+
+	// handles the messages of the coordinator until it says stop or the connection is lost
+	private void receive() {
+		try {
+			while (true) {
+				byte type = in.readByte();
+				if (type == ClusterProtocol.STOP) break;
+				if (type != ClusterProtocol.BEST) throw new IOException("Unexpected message " + type);
+				double avg = in.readDouble();
+				GeneratedGuessNode tree = ClusterProtocol.readTree(in);
+				synchronized (out) {
+					knownAvg = Math.min(knownAvg, avg);
+				}
+				// the generators adopt it at their next migration
+				exchange.publish(-1, tree, avg);
+			}
+		} catch (IOException e) {
+			System.err.println("Lost connection to the coordinator: " + e);
+		}
+		stopRequested = true;
+	}
+
+	private boolean anyRunning() {
+		for (GeneratorInterface gen : gens) {
+			if (!gen.isFinished()) return true;
+		}
+		return false;
+	}
+
+	/**
+	 * Runs a worker.
+	 * @param args See {@link #USAGE}.
+	 */
+	public static void main(String[] args) {
+		int numThreads = Runtime.getRuntime().availableProcessors();
+		int numIslands = -1;
+		int parallelCutoff = 0;
+		int parallelScoring = 0;
+		String address = null;
+
+		try {
+			for (int i = 0; i < args.length; i++) {
+				switch (args[i]) {
+				case "--threads":
+					numThreads = Integer.parseInt(args[++i]);
+					break;
+				case "--islands":
+					numIslands = Integer.parseInt(args[++i]);
+					break;
+				case "--parallel-cutoff":
+					parallelCutoff = Integer.parseInt(args[++i]);
+					break;
+				case "--parallel-scoring":
+					parallelScoring = Integer.parseInt(args[++i]);
+					break;
+				default:
+					if (args[i].startsWith("--") || address != null) {
+						throw new IllegalArgumentException("Unknown argument " + args[i]);
+					}
+					address = args[i];
+				}
+			}
+		} catch (RuntimeException e) {
+			System.err.println(e.getMessage());
+			address = null;
+		}
+		if (numIslands < 0) numIslands = numThreads;
+		if (address == null || numThreads < 1 || numIslands < 1) {
+			System.err.println(USAGE);
+			System.exit(2);
+		}
+
+		String host = address;
+		int port = ClusterCoordinator.DEFAULT_PORT;
+		int colon = address.lastIndexOf(':');
+		if (colon >= 0) {
+			host = address.substring(0, colon);
+			try {
+				port = Integer.parseInt(address.substring(colon + 1));
+			} catch (NumberFormatException e) {
+				System.err.println(USAGE);
+				System.exit(2);
+			}
+		}
+
+		try (Socket socket = new Socket(host, port)) {
+			socket.setTcpNoDelay(true);
+			new ClusterWorker(socket, numThreads, numIslands, parallelCutoff, parallelScoring).run();
+		} catch (IOException e) {
+			e.printStackTrace();
+			System.exit(1);
+		}
+	}
+}
@@ -0,0 +1,135 @@
+package wordGuesserGenerator;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+
+/**
+ * An immutable, flattened guess tree for playing games.
+ * Nodes are identified by ints; the root is node 0. Instead of node objects, the tree consists of
+ * one array holding the guess of each node and one array holding the five children of each node.
+ * Walking the tree therefore doesn't allocate anything, and one tree can be used by any number of threads.
+ *
+ * @author libraun
+ *
+ */
+public final class CompiledGuessTree {
+	/**
+	 * The node id returned for a missing child.
+	 */
+	public static final int NONE = -1;
+
+	// guesses[node], equal guesses are the same String object
+	private final String[] guesses;
+	// children[node * 5 + i] is the i-th child of node, as in GeneratedGuessNode.getChild(i)
+	private final int[] children;
+
+	CompiledGuessTree(String[] guesses, int[] children) {
+		if (guesses.length == 0 || children.length != guesses.length * 5) {
+			throw new IllegalArgumentException("Each node needs a guess and five children");
+		}
+		for (int i = 0; i < children.length; i++) {
+			// children always come after their parent, which also rules out cycles
+			if (children[i] != NONE && (children[i] <= i / 5 || children[i] >= guesses.length)) {
+				throw new IllegalArgumentException("Invalid child of node " + i / 5);
+			}
+		}
+		this.guesses = guesses;
+		this.children = children;
+	}
+
+	/**
+	 * Flattens a guess tree. The nodes are numbered in pre-order.
+	 * @param root The root node of the tree.
+	 * @return The flattened tree.
+	 */
+	public static CompiledGuessTree compile(GeneratedGuessNode root) {
+		ArrayList<GeneratedGuessNode> nodes = new ArrayList<GeneratedGuessNode>();
+		ArrayList<GeneratedGuessNode> stack = new ArrayList<GeneratedGuessNode>();
+		stack.add(root);
+		while (!stack.isEmpty()) {
+			GeneratedGuessNode n = stack.remove(stack.size() - 1);
+			nodes.add(n);
+			for (int i = 4; i >= 0; i--) {
+				if (n.getChild(i) != null) stack.add(n.getChild(i));
+			}
+		}
+		HashMap<GeneratedGuessNode, Integer> ids = new HashMap<GeneratedGuessNode, Integer>();
+		for (int i = 0; i < nodes.size(); i++) {
+			ids.put(nodes.get(i), i);
+		}
+		HashMap<String, String> interned = new HashMap<String, String>();
+		String[] guesses = new String[nodes.size()];
+		int[] children = new int[nodes.size() * 5];
+		for (int i = 0; i < nodes.size(); i++) {
+			GeneratedGuessNode n = nodes.get(i);
+			String guess = interned.get(n.guess);
+			if (guess == null) {
+				guess = n.guess;
+				interned.put(guess, guess);
+			}
+			guesses[i] = guess;
+			for (int c = 0; c < 5; c++) {
+				GeneratedGuessNode child = n.getChild(c);
+				children[i * 5 + c] = (child == null) ? NONE : ids.get(child);
+			}
+		}
+		return new CompiledGuessTree(guesses, children);
+	}
+
+	/**
+	 * @return The id of the root node.
+	 */
+	public int root() {
+		return 0;
+	}
+
+	/**
+	 * @return The number of nodes.
+	 */
+	public int size() {
+		return guesses.length;
+	}
+
+	/**
+	 * @param node A node id.
+	 * @return The guess to use at the node.
+	 */
+	public String guess(int node) {
+		return guesses[node];
+	}
+
+	/**
+	 * @param node A node id.
+	 * @return If the node has no children.
+	 */
+	public boolean isLeaf(int node) {
+		for (int i = 0; i < 5; i++) {
+			if (children[node * 5 + i] != NONE) return false;
+		}
+		return true;
+	}
+
+	/**
+	 * Plays a game against a word.
+	 * @param word The word to guess.
+	 * @return The number of guesses needed to find the word, or -1 if the tree doesn't find it.
+	 */
+	public int guesses(String word) {
+		int count = 1;
+		for (int node = 0; node != NONE; node = children[node * 5 + TipTable.classify(word, guesses[node])]) {
+			if (guesses[node].equals(word)) return count;
+			count++;
+		}
+		return -1;
+	}
+
+	/**
+	 * Get the i-th child of a node, with the same numbering as {@link GeneratedGuessNode#getChild(int)}.
+	 * @param node A node id.
+	 * @param i The index of the child.
+	 * @return The id of the child node, or {@link #NONE} if there is none.
+	 */
+	public int child(int node, int i) {
+		return children[node * 5 + i];
+	}
+}
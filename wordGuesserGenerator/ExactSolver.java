@@ -0,0 +1,274 @@
+package wordGuesserGenerator;
+
+import java.util.Arrays;
+import java.util.HashSet;
+
+/**
+ * Finds guess trees with the minimum number of guesses for small word lists.
+ * Uses a branch-and-bound search; solved subsets are kept in a transposition table
+ * which is shared by all generators working on the same word list and weights.
+ * With weights, the guesses of each word are counted in units of its weight, see {@link #UNIT_SCALE}.
+ *
+ * @author libraun
+ *
+ */
+public class ExactSolver {
+	/**
+	 * The largest word list that can be solved, because partition signatures must fit into a long.
+	 */
+	public static final int MAX_WORDS = 20;
+
+	/**
+	 * How many units the heaviest word weighs. Weights are rounded to whole units, and every word weighs at least one.
+	 * A tree of {@link #MAX_WORDS} words is at most {@link #MAX_WORDS} guesses deep, so costs still fit into an int.
+	 */
+	public static final int UNIT_SCALE = 1 << 16;
+
+	private static final int TABLE_CAPACITY = 1 << 18;
+	private static final byte FOUND = 5;
+
+	private static ExactSolver last = null;
+
+	private final TipTable table;
+	private final WordWeights weights;
+	// the weight of each word in units, 1 without weights
+	private final int[] units;
+	private final SubsetTable<Solution> solved = new SubsetTable<Solution>(TABLE_CAPACITY);
+
+	// The best guess for a subset and the total number of guesses (in units) needed to find all of its words.
+	private static class Solution {
+		final int choice; // tip index, or -(word index + 1)
+		final int cost;
+
+		Solution(int choice, int cost) {
+			this.choice = choice;
+			this.cost = cost;
+		}
+	}
+
+	/**
+	 * Returns the solver for a tip table, reusing the last one if the table and weights are the same.
+	 * @param table The tip table of the word list.
+	 * @param weights The weights of the words, or null to weigh them the same.
+	 * @return The solver for the word list.
+	 */
+	public static synchronized ExactSolver forTable(TipTable table, WordWeights weights) {
+		if (last == null || last.table != table || last.weights != weights) {
+			last = new ExactSolver(table, weights);
+		}
+		return last;
+	}
+
+	private ExactSolver(TipTable table, WordWeights weights) {
+		this.table = table;
+		this.weights = weights;
+		units = new int[table.words.length];
+		if (weights == null) {
+			Arrays.fill(units, 1);
+			return;
+		}
+		double[] w = weights.weightsOf(table.words);
+		double max = 0;
+		for (double d : w) {
+			max = Math.max(max, d);
+		}
+		for (int i = 0; i < w.length; i++) {
+			units[i] = (int) Math.max(1, Math.round(w[i] / max * UNIT_SCALE));
+		}
+	}
+
+	/**
+	 * Generate a guess tree with the minimum average number of guesses.
+	 * @param idx The indices of the words to base the guess tree upon. At most {@link #MAX_WORDS} words.
+	 * @return The root node of the resulting guess tree.
+	 */
+	public GeneratedGuessNode solve(int[] idx) {
+		int[] sorted = SubsetTable.canonical(idx);
+		Solution s = solution(sorted);
+		String guess = (s.choice >= 0) ? table.tips[s.choice] : table.words[-s.choice - 1];
+		GeneratedGuessNode node = new GeneratedGuessNode(guess);
+		node.setWords(table.words, sorted);
+		int[][] parts = partition(sorted, codes(sorted, s.choice));
+		for (int i = 0; i < parts.length; i++) {
+			if (parts[i].length > 0) {
+				node.setNthChild(i, solve(parts[i]));
+			}
+		}
+		return node;
+	}
+
+	/**
+	 * @param idx The indices of the words. At most {@link #MAX_WORDS} words.
+	 * @return The minimum total number of guesses needed to find every word, each counted in units of its weight.
+	 */
+	public int cost(int[] idx) {
+		return solution(SubsetTable.canonical(idx)).cost;
+	}
+
+	private Solution solution(int[] sorted) {
+		Solution s = solved.get(sorted, 0);
+		if (s == null) {
+			s = search(sorted);
+			solved.put(sorted, 0, s);
+		}
+		return s;
+	}
+
+	private Solution search(int[] sorted) {
+		int n = sorted.length;
+		if (n == 1) {
+			return new Solution(-sorted[0] - 1, units[sorted[0]]);
+		}
+		// every word is guessed once more at this node
+		int total = 0;
+		for (int w : sorted) {
+			total += units[w];
+		}
+		int[] heaviestFirst = heaviestFirst(sorted);
+		// only tips contained in one of the words can split them
+		int[] tips = containedTips(sorted);
+		// collect every distinct partitioning, words first so that they win ties
+		int[] choices = new int[n + tips.length];
+		int[] bounds = new int[choices.length];
+		int count = 0;
+		HashSet<Long> seen = new HashSet<Long>();
+		for (int j = 0; j < n; j++) {
+			count = addCandidate(sorted, -sorted[j] - 1, total, heaviestFirst, seen, choices, bounds, count);
+		}
+		for (int t : tips) {
+			count = addCandidate(sorted, t, total, heaviestFirst, seen, choices, bounds, count);
+		}
+		// most promising candidates first, ties keep their order
+		long[] order = new long[count];
+		for (int i = 0; i < count; i++) {
+			order[i] = ((long) bounds[i] << 32) | i;
+		}
+		Arrays.sort(order);
+
+		int bestChoice = choices[(int) order[0]];
+		int bestCost = Integer.MAX_VALUE;
+		for (long l : order) {
+			int o = (int) l;
+			if (bounds[o] >= bestCost) break;
+			int[][] parts = partition(sorted, codes(sorted, choices[o]));
+			int cost = total;
+			for (int[] part : parts) {
+				if (part.length == 0) continue;
+				cost += solution(part).cost;
+				if (cost >= bestCost) break;
+			}
+			if (cost < bestCost) {
+				bestCost = cost;
+				bestChoice = choices[o];
+			}
+		}
+		return new Solution(bestChoice, bestCost);
+	}
+
+	// the union of the tips of the words, in ascending order
+	private int[] containedTips(int[] sorted) {
+		int total = 0;
+		for (int w : sorted) {
+			total += table.wordTips[w].length;
+		}
+		int[] tips = new int[total];
+		int n = 0;
+		for (int w : sorted) {
+			System.arraycopy(table.wordTips[w], 0, tips, n, table.wordTips[w].length);
+			n += table.wordTips[w].length;
+		}
+		Arrays.sort(tips);
+		int unique = 0;
+		for (int i = 0; i < n; i++) {
+			if (unique == 0 || tips[unique - 1] != tips[i]) {
+				tips[unique++] = tips[i];
+			}
+		}
+		return Arrays.copyOf(tips, unique);
+	}
+
+	// the positions in sorted ordered by descending weight, ties in ascending order
+	private int[] heaviestFirst(int[] sorted) {
+		int[] order = new int[sorted.length];
+		for (int j = 0; j < order.length; j++) {
+			int k = j;
+			while (k > 0 && units[sorted[order[k - 1]]] < units[sorted[j]]) {
+				order[k] = order[k - 1];
+				k--;
+			}
+			order[k] = j;
+		}
+		return order;
+	}
+
+	private int addCandidate(int[] sorted, int choice, int total, int[] heaviestFirst, HashSet<Long> seen, int[] choices, int[] bounds, int count) {
+		byte[] codes = codes(sorted, choice);
+		long signature = 0;
+		int[] sizes = new int[6];
+		for (byte c : codes) {
+			signature = (signature << 3) | c;
+			sizes[c]++;
+		}
+		// guesses that neither find a word nor split the words don't make progress
+		if (sizes[FOUND] == 0 && Math.max(Math.max(sizes[0], sizes[1]), Math.max(Math.max(sizes[2], sizes[3]), sizes[4])) == sorted.length) {
+			return count;
+		}
+		if (!seen.add(signature)) return count;
+		// in each partition, the heaviest words are found with the fewest guesses at best
+		int bound = total;
+		int[] placed = new int[5];
+		for (int j : heaviestFirst) {
+			int c = codes[j];
+			if (c != FOUND) bound += units[sorted[j]] * minDepth(placed[c]++);
+		}
+		choices[count] = choice;
+		bounds[count] = bound;
+		return count + 1;
+	}
+
+	// partition codes of the words for a guess, FOUND for the guessed word
+	private byte[] codes(int[] sorted, int choice) {
+		byte[] codes = new byte[sorted.length];
+		if (choice >= 0) {
+			byte[] row = table.classes[choice];
+			int found = table.tipWord[choice];
+			for (int j = 0; j < sorted.length; j++) {
+				codes[j] = (sorted[j] == found) ? FOUND : row[sorted[j]];
+			}
+		} else {
+			int found = -choice - 1;
+			String guess = table.words[found];
+			for (int j = 0; j < sorted.length; j++) {
+				codes[j] = (sorted[j] == found) ? FOUND : TipTable.classify(table.words[sorted[j]], guess);
+			}
+		}
+		return codes;
+	}
+
+	private static int[][] partition(int[] sorted, byte[] codes) {
+		int[] sizes = new int[5];
+		for (byte c : codes) {
+			if (c != FOUND) sizes[c]++;
+		}
+		int[][] parts = new int[5][];
+		for (int i = 0; i < 5; i++) parts[i] = new int[sizes[i]];
+		Arrays.fill(sizes, 0);
+		for (int j = 0; j < sorted.length; j++) {
+			int c = codes[j];
+			if (c != FOUND) parts[c][sizes[c]++] = sorted[j];
+		}
+		return parts;
+	}
+
+	// Fewest guesses for the (k+1)-th word found in a subtree: each node finds at most one word and has at most five children.
+	private static int minDepth(int k) {
+		int depth = 1;
+		int levelSize = 1;
+		while (k >= levelSize) {
+			k -= levelSize;
+			depth++;
+			levelSize *= 5;
+		}
+		return depth;
+	}
+}
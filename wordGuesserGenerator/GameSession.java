@@ -0,0 +1,54 @@
+package wordGuesserGenerator;
+
+/**
+ * One game played with a {@link GuessEngine}. A session only consists of a position in the shared tree,
+ * so it is cheap to create, but it must not be used by several threads at once.
+ *
+ * @author libraun
+ *
+ */
+public final class GameSession {
+	private final CompiledGuessTree tree;
+	private int node;
+	private boolean found = false;
+
+	GameSession(CompiledGuessTree tree) {
+		this.tree = tree;
+		this.node = tree.root();
+	}
+
+	/**
+	 * @return The next guess, or null if the hints so far don't match any word of the tree.
+	 */
+	public String guess() {
+		return (node == CompiledGuessTree.NONE) ? null : tree.guess(node);
+	}
+
+	/**
+	 * Moves on to the next guess according to the hint for the current guess.
+	 * @param hint The hint given by the computer.
+	 */
+	public void hint(String hint) {
+		if (node == CompiledGuessTree.NONE || found) return;
+		int child = GuessEngine.childIndex(hint);
+		if (child == GuessEngine.FOUND) {
+			found = true;
+		} else if (child != GuessEngine.UNKNOWN) {
+			node = tree.child(node, child);
+		}
+	}
+
+	/**
+	 * @return If the last guess was the word.
+	 */
+	public boolean isFound() {
+		return found;
+	}
+
+	/**
+	 * @return If the hints so far don't match any word of the tree.
+	 */
+	public boolean isLost() {
+		return node == CompiledGuessTree.NONE;
+	}
+}
@@ -1,6 +1,7 @@
 package wordGuesserGenerator;
 
 import java.util.ArrayList;
+import java.util.HashMap;
 
 /**
  * Models a node in the guess tree.
@@ -36,7 +37,60 @@ public class GeneratedGuessNode {
 	 */
 	public GeneratedGuessNode begEnd;
 	// private, so that the invariant children[i] == {notCont, onlyCont, begin, end, begEnd}[i] is guaranteed
-	private GeneratedGuessNode[] children = new GeneratedGuessNode[] {notCont, onlyCont, begin, end, begEnd};
+	private GeneratedGuessNode[] children = new GeneratedGuessNode[5];
+	private GeneratedGuessNode parent = null;
+	
+	// Cached (word count, total weight, weighted sum of depths) of the subtree, with depths counted from this node.
+	// Which words are counted depends on the root, see cachedHits.
+	// A negative count means the cache is invalid; invalid nodes only have invalid ancestors.
+	private int cachedCount = -1;
+	private double cachedWeight = 0;
+	private double cachedDepthSum = 0;
+	// How many entries of the word array are found at this node and their total weight, or -1 if not known yet.
+	// A word is only found here if guessing it from the root of the tree leads to this node.
+	private int cachedHits = -1;
+	private double cachedHitWeight = 0;
+	// The word array and weights the caches belong to, the number of times each word occurs in the array
+	// and the total weight of its occurrences (root only).
+	private String[] cachedWordArray = null;
+	private WordWeights cachedWeights = null;
+	private HashMap<String, Integer> wordCounts = null;
+	private HashMap<String, Double> wordWeightSums = null;
+	
+	// The indices into wordList of the words found in this subtree, or null if not known (e.g. for loaded trees).
+	// Mutations only replace subtrees by ones generated for the same words, so the indices stay valid.
+	private int[] wordIndices = null;
+	private String[] wordList = null;
+	
+	// Changes of the currently open mutation in the order they were made (root only), or null.
+	private ArrayList<UndoEntry> undoLog = null;
+	
+	// The state of a node before it was changed by a mutation.
+	private static class UndoEntry {
+		final GeneratedGuessNode node;
+		final String guess;
+		final GeneratedGuessNode[] children;
+		final int hits;
+		final double hitWeight;
+		
+		UndoEntry(GeneratedGuessNode node) {
+			this.node = node;
+			guess = node.guess;
+			children = node.children.clone();
+			hits = node.cachedHits;
+			hitWeight = node.cachedHitWeight;
+		}
+		
+		void restore() {
+			node.guess = guess;
+			for (int i = 0; i < children.length; i++) {
+				node.setChild(i, children[i]);
+			}
+			// the restored children still have valid caches, so only this node is recomputed
+			node.cachedHits = hits;
+			node.cachedHitWeight = hitWeight;
+		}
+	}
 	
 	/**
 	 * Constructs a leaf guess node.
@@ -59,27 +113,125 @@ public class GeneratedGuessNode {
 			GeneratedGuessNode notCont, GeneratedGuessNode onlyCont,
 			GeneratedGuessNode begin, GeneratedGuessNode end, GeneratedGuessNode begEnd) {
 		this.guess = guess;
-		this.notCont = notCont;
-		this.begin = begin;
-		this.end = end;
-		this.begEnd = begEnd;
-		children = new GeneratedGuessNode[] {notCont, onlyCont, begin, end, begEnd};
+		GeneratedGuessNode[] nodes = new GeneratedGuessNode[] {notCont, onlyCont, begin, end, begEnd};
+		for (int i = 0; i < nodes.length; i++) {
+			if (nodes[i] != null) {
+				setNthChild(i, nodes[i]);
+			}
+		}
 	}
 	
 	/**
 	 * Creates and returns a copy of this object.
+	 * If this node is the root of its tree, the cached averages are copied as well.
 	 */
 	@Override
 	protected GeneratedGuessNode clone() {
+		boolean keepCache = parent == null;
+		GeneratedGuessNode clone = cloneSubtree(keepCache);
+		if (keepCache) {
+			clone.cachedWordArray = cachedWordArray;
+			clone.cachedWeights = cachedWeights;
+			clone.wordCounts = wordCounts; // never modified after creation
+			clone.wordWeightSums = wordWeightSums;
+		}
+		return clone;
+	}
+	
+	private GeneratedGuessNode cloneSubtree(boolean keepCache) {
 		GeneratedGuessNode clone = new GeneratedGuessNode(guess); // this is fine because String is immutable
+		clone.wordIndices = wordIndices; // never modified either
+		clone.wordList = wordList;
 		for (int i = 0; i < children.length; i++) {
 			if (children[i] != null) {
-				clone.setNthChild(i, children[i].clone());
+				clone.setNthChild(i, children[i].cloneSubtree(keepCache));
 			}
 		}
+		if (keepCache) {
+			clone.cachedCount = cachedCount;
+			clone.cachedWeight = cachedWeight;
+			clone.cachedDepthSum = cachedDepthSum;
+			clone.cachedHits = cachedHits;
+			clone.cachedHitWeight = cachedHitWeight;
+		}
 		return clone;
 	}
 	
+	/**
+	 * Replaces the guess and all child nodes of this node with the ones of another node.
+	 * The other node must be generated for the same words as this node and is left without children.
+	 * @param other The node to take the guess and child nodes from.
+	 */
+	public void replaceWith(GeneratedGuessNode other) {
+		recordUndo();
+		guess = other.guess;
+		cachedHits = -1;
+		if (wordIndices == null) {
+			wordIndices = other.wordIndices;
+			wordList = other.wordList;
+		}
+		for (int i = 0; i < children.length; i++) {
+			GeneratedGuessNode child = other.children[i];
+			other.setChild(i, null);
+			setChild(i, child);
+		}
+	}
+	
+	/**
+	 * Remembers which words are found in this subtree.
+	 * @param wordList The word list the indices refer to.
+	 * @param idx The indices of the words. Must not be modified afterwards.
+	 */
+	void setWords(String[] wordList, int[] idx) {
+		this.wordList = wordList;
+		wordIndices = idx;
+	}
+	
+	/**
+	 * @param wordList The word list the indices should refer to.
+	 * @return The indices of the words found in this subtree, or null if they are not known for this word list.
+	 */
+	int[] getWords(String[] wordList) {
+		return (this.wordList == wordList) ? wordIndices : null;
+	}
+	
+	/**
+	 * Starts recording all changes made to the tree, so that they can be undone with {@link #rollbackMutation()}.
+	 * Only the changed nodes are recorded, not the whole tree. Must be called on the root node.
+	 */
+	public void beginMutation() {
+		undoLog = new ArrayList<UndoEntry>();
+	}
+	
+	/**
+	 * Keeps all changes made since {@link #beginMutation()} and stops recording.
+	 */
+	public void commitMutation() {
+		undoLog = null;
+	}
+	
+	/**
+	 * Undoes all changes made since {@link #beginMutation()} and stops recording.
+	 */
+	public void rollbackMutation() {
+		if (undoLog == null) return;
+		for (int i = undoLog.size() - 1; i >= 0; i--) {
+			undoLog.get(i).restore();
+		}
+		undoLog = null;
+	}
+	
+	// records the state of this node if a mutation is open on its tree
+	private void recordUndo() {
+		GeneratedGuessNode root = this;
+		while (root.parent != null) {
+			root = root.parent;
+		}
+		if (root.undoLog != null) {
+			root.undoLog.add(new UndoEntry(this));
+		}
+	}
+	
 	/**
 	 * Serializes the guess tree starting from this node with ASCII encoding.
 	 * @return A serialized version of the tree.
@@ -87,13 +239,14 @@ public class GeneratedGuessNode {
 	public String serializeGuessTree() {
 		ArrayList<String> lines = new ArrayList<String>();
 		serializeGuessTree(lines);
-		String treeStr = "";
+		StringBuilder treeStr = new StringBuilder();
 		boolean isFirstLine = true;
 		for (String line : lines) {
-			treeStr += ((isFirstLine) ? "" : "\n") + line;
+			if (!isFirstLine) treeStr.append('\n');
+			treeStr.append(line);
 			isFirstLine = false;
 		}
-		return treeStr;
+		return treeStr.toString();
 	}
 	
 	// Recursive helper function
@@ -140,23 +293,105 @@ public class GeneratedGuessNode {
 
 	/**
 	 * Deterministically calculates the average number of guesses the guess tree takes, starting from this node.
+	 * On the root node, the result is cached per subtree and only recomputed along the paths to changed nodes.
 	 * @param wordArray The word list to use. Must be the same one that was used to generate the guess tree.
 	 * @return The average number of guesses the guess tree needed.
 	 * @throws Exception If a word was not found with the guess tree.
 	 */
 	public double calcAverage(String[] wordArray) throws Exception {
-		int sum = 0;
-	    int count = 0;
+		return calcAverage(wordArray, null);
+	}
+	
+	/**
+	 * Deterministically calculates the weighted average number of guesses the guess tree takes, starting from this node,
+	 * i.e. the expected number of guesses if the words are drawn according to their weights.
+	 * On the root node, the result is cached per subtree and only recomputed along the paths to changed nodes.
+	 * @param wordArray The word list to use. Must be the same one that was used to generate the guess tree.
+	 * @param weights The weights of the words, or null to weigh every entry of the word list the same.
+	 * @return The weighted average number of guesses the guess tree needed.
+	 * @throws Exception If a word was not found with the guess tree.
+	 */
+	public double calcAverage(String[] wordArray, WordWeights weights) throws Exception {
+		if (parent != null) {
+			// the hits depend on the root of the tree, which also keeps the word counts, so walk every word instead
+			return walkAverage(wordArray, weights);
+		}
+		if (wordArray != cachedWordArray || weights != cachedWeights) {
+			wordCounts = new HashMap<String, Integer>();
+			wordWeightSums = new HashMap<String, Double>();
+			for (String w : wordArray) {
+				Integer c = wordCounts.get(w);
+				wordCounts.put(w, (c == null) ? 1 : c + 1);
+				Double sum = wordWeightSums.get(w);
+				double weight = (weights == null) ? 1 : weights.weightOf(w);
+				wordWeightSums.put(w, (sum == null) ? weight : sum + weight);
+			}
+			cachedWordArray = wordArray;
+			cachedWeights = weights;
+			invalidateSubtree();
+		}
+		updateCache(this);
+		if (cachedCount != wordArray.length) {
+			// some word was not found, let the slow path report which one
+			return walkAverage(wordArray, weights);
+		}
+		return cachedDepthSum / cachedWeight;
+	}
+	
+	private double walkAverage(String[] wordArray, WordWeights weights) throws Exception {
+		double sum = 0;
+	    double total = 0;
 	    for (String w : wordArray) {
 	        int g = simGuess(w);
 	        if (g == -1) {
 	        	simGuess(w);
 	        	throw new Exception("Word " + w + " not found. This probably means my code is bad!");
 	        }
-	        sum += g;
-	        count++;
+	        double weight = (weights == null) ? 1 : weights.weightOf(w);
+	        sum += g * weight;
+	        total += weight;
 	    }
-	    return (double) sum / count;
+	    return sum / total;
+	}
+	
+	// recomputes the invalid caches below this node
+	private void updateCache(GeneratedGuessNode root) {
+		if (cachedCount >= 0) return;
+		if (cachedHits < 0) {
+			Integer c = root.wordCounts.get(guess);
+			cachedHits = (c != null && root.findNode(guess) == this) ? c : 0;
+			cachedHitWeight = (cachedHits > 0) ? root.wordWeightSums.get(guess) : 0;
+		}
+		int count = cachedHits;
+		double weight = cachedHitWeight;
+		double depthSum = cachedHitWeight;
+		for (GeneratedGuessNode child : children) {
+			if (child != null) {
+				child.updateCache(root);
+				count += child.cachedCount;
+				weight += child.cachedWeight;
+				// every word below the child needs one more guess from here
+				depthSum += child.cachedDepthSum + child.cachedWeight;
+			}
+		}
+		cachedDepthSum = depthSum;
+		cachedWeight = weight;
+		cachedCount = count;
+	}
+	
+	// marks this node and its ancestors as changed
+	private void invalidate() {
+		for (GeneratedGuessNode n = this; n != null && n.cachedCount >= 0; n = n.parent) {
+			n.cachedCount = -1;
+		}
+	}
+	
+	private void invalidateSubtree() {
+		cachedCount = -1;
+		cachedHits = -1;
+		for (GeneratedGuessNode child : children) {
+			if (child != null) child.invalidateSubtree();
+		}
 	}
 	
 	// count guesses for a certain word
@@ -165,29 +400,33 @@ public class GeneratedGuessNode {
 	    GeneratedGuessNode curr = this;
 	    while (curr != null) {
 	        count++;
-	        String guess = curr.guess;
-	        if (word.equals(guess)) return count;
-	        if (word.contains(guess)) {
-	            if (!word.startsWith(guess) && !word.endsWith(guess)) {
-	                curr = curr.onlyCont;
-	            } else {
-	                if (word.startsWith(guess)) {
-	                    if (word.startsWith(guess) && word.endsWith(guess)) {
-	                        curr = curr.begEnd;
-	                    } else {
-	                        curr = curr.begin;
-	                    }
-	                } else {
-	                    curr = curr.end;
-	                }
-	            }
-	        } else {
-	            curr = curr.notCont;
-	        }
+	        if (word.equals(curr.guess)) return count;
+	        curr = curr.children[TipTable.classify(word, curr.guess)];
 	    }
 	    return -1;
 	}
 	
+	// the node at which a word is found, or null
+	private GeneratedGuessNode findNode(String word) {
+	    GeneratedGuessNode curr = this;
+	    while (curr != null && !word.equals(curr.guess)) {
+	        curr = curr.children[TipTable.classify(word, curr.guess)];
+	    }
+	    return curr;
+	}
+	
+	/**
+	 * @param word A word.
+	 * @return If the word is found at this node, i.e. the tree leads to this node when guessing the word from its root.
+	 */
+	boolean isFoundHere(String word) {
+		GeneratedGuessNode root = this;
+		while (root.parent != null) {
+			root = root.parent;
+		}
+		return root.findNode(word) == this;
+	}
+	
 	/**
 	 * Get the i-th child of the node.
 	 * @param i
@@ -204,6 +443,18 @@ public class GeneratedGuessNode {
 	 * @param n The child node to set it to.
 	 */
 	public void setNthChild(int i, GeneratedGuessNode n) {
+		recordUndo();
+		setChild(i, n);
+	}
+	
+	private void setChild(int i, GeneratedGuessNode n) {
+		if (children[i] != null && children[i].parent == this) {
+			children[i].parent = null;
+		}
+		if (n != null) {
+			n.parent = this;
+		}
+		invalidate();
 		children[i] = n;
 		switch (i) {
 		case 0:
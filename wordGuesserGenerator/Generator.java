@@ -1,6 +1,11 @@
 package wordGuesserGenerator;
 
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Paths;
 import java.util.HashSet;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicBoolean;
 
 /**
  * A class for generating guess trees.
@@ -10,6 +15,7 @@ import java.util.HashSet;
 public class Generator {
 	
 	private HashSet<String> words;
+	private WordWeights weights = null;
 	private HeuristicGenerator gen;
 	
 	/**
@@ -21,6 +27,77 @@ public class Generator {
 		gen = new HeuristicGenerator((String[]) words.toArray(new String[words.size()]));
 	}
 	
+	/**
+	 * Constructs a generator from a word list.
+	 * @param words The word list.
+	 * @param seed The seed for the random decisions of the heuristic.
+	 */
+	public Generator(HashSet<String> words, long seed) {
+		this(words, seed, TipTable.DEFAULT_MAX_TIP_LENGTH);
+	}
+	
+	/**
+	 * Constructs a generator from a word list.
+	 * @param words The word list.
+	 * @param seed The seed for the random decisions of the heuristic.
+	 * @param maxTipLength The maximum length of the tips to consider, in code points.
+	 */
+	public Generator(HashSet<String> words, long seed, int maxTipLength) {
+		this(words, seed, maxTipLength, null);
+	}
+	
+	/**
+	 * Constructs a generator from a word list whose words are drawn with different frequencies.
+	 * @param words The word list.
+	 * @param seed The seed for the random decisions of the heuristic.
+	 * @param maxTipLength The maximum length of the tips to consider, in code points.
+	 * @param weights The weights of the words, or null to weigh them the same.
+	 */
+	public Generator(HashSet<String> words, long seed, int maxTipLength, WordWeights weights) {
+		this.words = words;
+		this.weights = weights;
+		gen = new HeuristicGenerator(words.toArray(new String[words.size()]), seed, maxTipLength, weights);
+	}
+	
+	/**
+	 * Lets generation be aborted from another thread, see {@link HeuristicGenerator#setAbortFlag(AtomicBoolean)}.
+	 * @param flag The flag, or null to never abort.
+	 */
+	public void setAbortFlag(AtomicBoolean flag) {
+		gen.setAbortFlag(flag);
+	}
+	
+	/**
+	 * Lets this generator use its own memo of subtrees, see {@link HeuristicGenerator#usePrivateMemo()}.
+	 */
+	public void usePrivateMemo() {
+		gen.usePrivateMemo();
+	}
+	
+	/**
+	 * Reads a word list file. The first line holds the number of words and is skipped.
+	 * @param path The path of the file.
+	 * @return The words, duplicates are preserved.
+	 * @throws IOException If the file could not be read.
+	 */
+	public static String[] readWordList(String path) throws IOException {
+		List<String> fileLines = Files.readAllLines(Paths.get(path));
+		String[] words = new String[fileLines.size() - 1];
+		for (int i = 1; i < fileLines.size(); i++) {
+			words[i - 1] = fileLines.get(i);
+		}
+		return words;
+	}
+	
+	/**
+	 * Generate one guess tree for the whole word list with certain heuristic parameters.
+	 * @param params The parameters for the heuristic generator.
+	 * @return The root node of the guess tree that was generated.
+	 */
+	public GeneratedGuessNode generateGuessTree(HeuristicParams params) {
+		return gen.generateForWordList(words, params);
+	}
+	
 	/**
 	 * Generate multiple guess trees for the whole word list with certain heuristic parameters and return the best one.
 	 * @param trials The number of trials to do.
@@ -33,10 +110,10 @@ public class Generator {
 		double bestScore = Double.POSITIVE_INFINITY;
 		for (int i = 0; i < trials; i++) {
 			GeneratedGuessNode myAlg = gen.generateForWordList(words, params);
-			double avg = myAlg.calcAverage(words.toArray(new String[words.size()]));
+			double avg = myAlg.calcAverage(words.toArray(new String[words.size()]), weights);
 			if (avg < bestScore) {
 				bestScore = avg;
-				best = myAlg.clone();
+				best = myAlg;
 			}
 		}
 		
@@ -50,8 +127,7 @@ public class Generator {
 	 * @return The root node of the guess subtree that was generated.
 	 */
 	public GeneratedGuessNode generateGuessNodeRandomized(GeneratedGuessNode g, HeuristicParams p) {
-        HashSet<String> collated = collateWords(g);
-		GeneratedGuessNode myAlg = gen.generateForWordList(collated, p);
+		GeneratedGuessNode myAlg = gen.generateForIndices(collateWords(g), p);
 		return myAlg;
 	}
 
@@ -62,13 +138,25 @@ public class Generator {
 	 * @return The new guess node.
 	 */
 	public GeneratedGuessNode generateSubguessesFromGuess(GeneratedGuessNode g, HeuristicParams p) {
-		GeneratedGuessNode node = new GeneratedGuessNode(g.guess);
+		return generateSubguessesFromGuess(g, g.guess, p);
+	}
+
+	/**
+	 * For a guess node, generate a new node using a different guess with certain heuristic parameters for all its children.
+	 * @param g The root node of the guess node to use.
+	 * @param guess The guess to use for the new node.
+	 * @param p The parameters for the heuristic generator.
+	 * @return The new guess node.
+	 */
+	public GeneratedGuessNode generateSubguessesFromGuess(GeneratedGuessNode g, String guess, HeuristicParams p) {
+		GeneratedGuessNode node = new GeneratedGuessNode(guess);
+		int[] idx = collateWords(g);
+		node.setWords(gen.wordList(), idx);
 		
-        HashSet<String> collated = collateWords(g);
-		HashSet<String>[] partition = HeuristicGenerator.computePartitions(collated, g.guess);
+		int[][] partition = gen.computePartitions(idx, guess);
 		for (int i = 0; i < partition.length; i++) {
-			if (partition[i].size() > 0) {
-				GeneratedGuessNode child = gen.generateForWordList(partition[i], p);
+			if (partition[i].length > 0) {
+				GeneratedGuessNode child = gen.generateForIndices(partition[i], p);
 				node.setNthChild(i, child);
 			} 
 		}
@@ -76,21 +164,33 @@ public class Generator {
 		return node;
 	}
 	
-	private HashSet<String> collateWords(GeneratedGuessNode root) {
-		HashSet<String> list = new HashSet<String>();
-	    if (words.contains(root.guess)) {
-	        list.add(root.guess);
-	    }
-        for (int i = 0; i < 5; i++) {
-	    	if (root.getChild(i) != null) {
-	    		HashSet<String> subWords = collateWords(root.getChild(i));
-		        for (String n : subWords) {
-		        	list.add(n);
-		        }
-		    }
-	    }
-	    
-	    return list;
+	// Returns the indices of the words found in a subtree. Generated nodes know them already;
+	// for other nodes (e.g. of a loaded tree) they are collected once and remembered. A node's guess
+	// only counts if the word actually leads to the node, a guess which can't be the answer there doesn't.
+	private int[] collateWords(GeneratedGuessNode root) {
+		int[] idx = root.getWords(gen.wordList());
+		if (idx != null) return idx;
+		
+		int count = 0;
+		int[][] subWords = new int[5][];
+		for (int i = 0; i < 5; i++) {
+			if (root.getChild(i) != null) {
+				subWords[i] = collateWords(root.getChild(i));
+				count += subWords[i].length;
+			}
+		}
+		int self = gen.indexOfWord(root.guess);
+		if (self >= 0 && !root.isFoundHere(root.guess)) self = -1;
+		idx = new int[count + ((self >= 0) ? 1 : 0)];
+		int n = 0;
+		if (self >= 0) idx[n++] = self;
+		for (int[] sub : subWords) {
+			if (sub == null) continue;
+			System.arraycopy(sub, 0, idx, n, sub.length);
+			n += sub.length;
+		}
+		root.setWords(gen.wordList(), idx);
+		return idx;
 	}
 
 }
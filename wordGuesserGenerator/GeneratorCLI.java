@@ -0,0 +1,263 @@
+package wordGuesserGenerator;
+
+import java.io.IOException;
+import java.nio.file.Paths;
+import java.text.DecimalFormat;
+import java.util.SplittableRandom;
+
+/**
+ * Runs the generator without a GUI, e.g. on a headless server.
+ * The generators ("islands") are stopped once the time or iteration budget is used up,
+ * after which the best guess tree is written to the output file.
+ *
+ * @author libraun
+ *
+ */
+public class GeneratorCLI {
+
+	private static final String USAGE =
+			"Usage: java wordGuesserGenerator.GeneratorCLI [options] <word list>\n" +
+			"Options:\n" +
+			"  --threads <n>       number of threads to run the generators on (default: number of processors)\n" +
+			"  --islands <n>       number of generators, which take turns on the threads (default: number of threads)\n" +
+			"  --time <seconds>    stop after this much wall-clock time\n" +
+			"  --iterations <n>    stop each thread after this many mutations\n" +
+			"  --seed <seed>       seed for the random decisions (default: random)\n" +
+			"  --out <file>        where to save the best guess tree, in the text format if it ends in .txt (default: alg.bin)\n" +
+			"  --progress <secs>   interval of the progress output (default: 10)\n" +
+			"  --parallel-cutoff <n>  generate subtrees of at least n words in parallel (default: 0 = off)\n" +
+			"  --parallel-scoring <n> score the tips of nodes with at least n words in parallel (default: 0 = off)\n" +
+			"  --migration-interval <n>  mutations between exchanging best trees between threads (default: 500, 0 = off)\n" +
+			"  --max-tip-length <n>  longest tips to consider, in characters (default: 3)\n" +
+			"  --weights <file>    how often each word is drawn, one \"word weight\" per line, or none\n" +
+			"                      (default: " + WordWeights.FILE_NAME + " next to the word list, if there is one)\n" +
+			"  --accept <policy>   which mutations to keep: greedy (default), anneal[:<t0>[:<cooling>]],\n" +
+			"                      threshold[:<t0>[:<cooling>]] or late[:<length>]\n" +
+			"  --checkpoint-dir <dir>  write the state of every thread to this directory periodically\n" +
+			"  --checkpoint-interval <secs>  interval of the checkpoints (default: 300)\n" +
+			"  --resume            continue from the checkpoints in the checkpoint directory\n" +
+			"  --deterministic     make the result only depend on --seed and --iterations, not on thread timing\n" +
+			"                      (requires both, and no --time)\n" +
+			"At least one of --time and --iterations is required.";
+
+	/**
+	 * Runs the generator.
+	 * @param args See {@link #USAGE}.
+	 */
+	public static void main(String[] args) {
+		int numThreads = Runtime.getRuntime().availableProcessors();
+		int numIslands = -1;
+		long timeBudget = -1;
+		long iterationBudget = -1;
+		Long seed = null;
+		String outPath = "alg.bin";
+		long progressInterval = 10;
+		int parallelCutoff = 0;
+		int parallelScoring = 0;
+		int migrationInterval = 500;
+		int maxTipLength = TipTable.DEFAULT_MAX_TIP_LENGTH;
+		String acceptSpec = "greedy";
+		String checkpointDir = null;
+		long checkpointInterval = 300;
+		boolean resume = false;
+		boolean deterministic = false;
+		String weightsPath = null;
+		String wordListPath = null;
+
+		try {
+			for (int i = 0; i < args.length; i++) {
+				switch (args[i]) {
+				case "--threads":
+					numThreads = Integer.parseInt(args[++i]);
+					break;
+				case "--islands":
+					numIslands = Integer.parseInt(args[++i]);
+					break;
+				case "--time":
+					timeBudget = Long.parseLong(args[++i]);
+					break;
+				case "--iterations":
+					iterationBudget = Long.parseLong(args[++i]);
+					break;
+				case "--seed":
+					seed = Long.parseLong(args[++i]);
+					break;
+				case "--out":
+					outPath = args[++i];
+					break;
+				case "--progress":
+					progressInterval = Long.parseLong(args[++i]);
+					break;
+				case "--parallel-cutoff":
+					parallelCutoff = Integer.parseInt(args[++i]);
+					break;
+				case "--parallel-scoring":
+					parallelScoring = Integer.parseInt(args[++i]);
+					break;
+				case "--migration-interval":
+					migrationInterval = Integer.parseInt(args[++i]);
+					break;
+				case "--max-tip-length":
+					maxTipLength = Integer.parseInt(args[++i]);
+					break;
+				case "--accept":
+					acceptSpec = args[++i];
+					AcceptancePolicy.parse(acceptSpec); // fail early
+					break;
+				case "--checkpoint-dir":
+					checkpointDir = args[++i];
+					break;
+				case "--checkpoint-interval":
+					checkpointInterval = Long.parseLong(args[++i]);
+					break;
+				case "--resume":
+					resume = true;
+					break;
+				case "--deterministic":
+					deterministic = true;
+					break;
+				case "--weights":
+					weightsPath = args[++i];
+					break;
+				default:
+					if (args[i].startsWith("--") || wordListPath != null) {
+						throw new IllegalArgumentException("Unknown argument " + args[i]);
+					}
+					wordListPath = args[i];
+				}
+			}
+		} catch (RuntimeException e) {
+			// also catches missing values and malformed numbers
+			System.err.println(e.getMessage());
+			wordListPath = null;
+		}
+		if (numIslands < 0) numIslands = numThreads;
+		if (wordListPath == null || numThreads < 1 || numIslands < 1 || maxTipLength < 1 || (timeBudget < 0 && iterationBudget < 0)
+				|| (resume && checkpointDir == null)
+				|| (deterministic && (seed == null || iterationBudget < 0 || timeBudget >= 0))) {
+			System.err.println(USAGE);
+			System.exit(2);
+		}
+
+		String[] words;
+		WordWeights weights;
+		try {
+			words = Generator.readWordList(wordListPath);
+			if (weightsPath == null) {
+				weights = WordWeights.loadNextTo(Paths.get(wordListPath));
+			} else {
+				weights = weightsPath.equals("none") ? null : WordWeights.load(Paths.get(weightsPath));
+			}
+		} catch (IOException e) {
+			e.printStackTrace();
+			System.exit(1);
+			return;
+		}
+
+		GeneratorInterface[] gens = new GeneratorInterface[numIslands];
+		IslandExchange exchange = new IslandExchange(numIslands, migrationInterval, deterministic);
+		IslandScheduler scheduler = new IslandScheduler(numThreads);
+		// all threads learn from each other which heuristic parameters work, except in deterministic mode
+		ParamTuner prePhaseTuner = ParamTuner.forPrePhase();
+		ParamTuner improvementTuner = ParamTuner.forImprovement();
+		// in deterministic mode, every thread gets an independent stream of random numbers split off the seed
+		SplittableRandom seeds = (seed == null) ? null : new SplittableRandom(seed);
+		for (int i = 0; i < gens.length; i++) {
+			if (deterministic) {
+				gens[i] = new GeneratorInterface(seeds.split().nextLong());
+				gens[i].setDeterministic(true);
+				gens[i].setParamTuners(ParamTuner.forPrePhase(), ParamTuner.forImprovement());
+			} else {
+				gens[i] = (seed == null) ? new GeneratorInterface() : new GeneratorInterface(seed + i);
+				gens[i].setParamTuners(prePhaseTuner, improvementTuner);
+			}
+			gens[i].setWordList(words);
+			gens[i].setWordWeights(weights);
+			gens[i].setParallelCutoff(parallelCutoff);
+			gens[i].setParallelScoringMinWords(parallelScoring);
+			gens[i].setExchange(exchange, i);
+			gens[i].setMaxTipLength(maxTipLength);
+			gens[i].setAcceptancePolicy(AcceptancePolicy.parse(acceptSpec));
+			if (checkpointDir != null) {
+				gens[i].setCheckpoints(Paths.get(checkpointDir), checkpointInterval * 1000, resume);
+			}
+			if (iterationBudget >= 0) {
+				gens[i].setIterationBudget(iterationBudget);
+			}
+			// set before starting, so the generator never waits for the GUI
+			gens[i].toggleGenRunning();
+			scheduler.submit(gens[i]);
+		}
+		System.out.println("Started " + numIslands + " generators on " + numThreads + " threads on " + words.length + " words" +
+				((weights == null) ? "." : ", weighted by how often they are drawn."));
+
+		long start = System.currentTimeMillis();
+		long deadline = (timeBudget < 0) ? Long.MAX_VALUE : start + timeBudget * 1000;
+		long nextProgress = start + progressInterval * 1000;
+		DecimalFormat df = new DecimalFormat("#.000");
+		while (System.currentTimeMillis() < deadline && anyRunning(gens)) {
+			try {
+				Thread.sleep(Math.max(1, Math.min(100, deadline - System.currentTimeMillis())));
+			} catch (InterruptedException e) {
+				break;
+			}
+			if (System.currentTimeMillis() >= nextProgress) {
+				nextProgress += progressInterval * 1000;
+				long totalIterations = 0;
+				double mutationsPerSecond = 0;
+				for (GeneratorInterface gen : gens) {
+					totalIterations += gen.getIterations();
+					if (gen.getStats() != null) mutationsPerSecond += gen.getStats().getMutationsPerSecond();
+				}
+				double best = bestAverage(gens);
+				System.out.println("[" + (System.currentTimeMillis() - start) / 1000 + "s] iterations: " + totalIterations +
+						" (" + Math.round(mutationsPerSecond) + "/s), best average: " +
+						((best == Double.POSITIVE_INFINITY) ? "(none yet)" : df.format(best)));
+			}
+		}
+
+		for (GeneratorInterface gen : gens) {
+			gen.stop();
+		}
+		for (GeneratorInterface gen : gens) {
+			try {
+				gen.awaitFinished();
+			} catch (InterruptedException e) { e.printStackTrace(); }
+		}
+		scheduler.shutdown();
+
+		// of equally good trees, the one of the first thread is saved
+		GeneratorInterface bestGen = null;
+		for (GeneratorInterface gen : gens) {
+			if (gen.getBestAlg() != null && (bestGen == null || gen.getBestAlgAvg() < bestGen.getBestAlgAvg())) {
+				bestGen = gen;
+			}
+		}
+		if (bestGen == null) {
+			System.err.println("No guess tree was generated.");
+			System.exit(1);
+		}
+		try {
+			GuessTreeIO.save(bestGen.getBestAlg(), Paths.get(outPath));
+		} catch (IOException e) {
+			e.printStackTrace();
+			System.exit(1);
+		}
+		System.out.println("Saved guess tree with average " + df.format(bestGen.getBestAlgAvg()) + " to " + outPath);
+	}
+
+	private static boolean anyRunning(GeneratorInterface[] gens) {
+		for (GeneratorInterface gen : gens) {
+			if (!gen.isFinished()) return true;
+		}
+		return false;
+	}
+
+	private static double bestAverage(GeneratorInterface[] gens) {
+		double best = Double.POSITIVE_INFINITY;
+		for (GeneratorInterface gen : gens) {
+			best = Math.min(best, gen.getBestAlgAvg());
+		}
+		return best;
+	}
+}
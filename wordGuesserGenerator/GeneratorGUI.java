@@ -6,11 +6,10 @@ import java.awt.GridLayout;
 import java.awt.event.ActionEvent;
 import java.awt.event.ActionListener;
 import java.io.IOException;
-import java.nio.file.Files;
 import java.nio.file.Paths;
 import java.text.DecimalFormat;
 import java.util.ArrayList;
-import java.util.List;
+import java.util.Arrays;
 import java.util.Timer;
 import java.util.TimerTask;
 
@@ -29,10 +28,12 @@ public class GeneratorGUI {
 
 	private JFrame frame;
 
-	private int numThreads = 12;
+	private int numIslands = 12;
+	private int migrationInterval = 500;
 	private static JLabel maxLabel;
 
 	static GeneratorInterface[] gens;
+	private static IslandScheduler scheduler;
 
 	/**
 	 * Launch the application.
@@ -50,10 +51,8 @@ public class GeneratorGUI {
 						public void run() {
 							double bestGenAvg = Double.POSITIVE_INFINITY;
 							for (GeneratorInterface gen : gens) {
-								synchronized (gen) {
-									if (gen.getBestAlgAvg() < bestGenAvg) {
-										bestGenAvg = gen.getBestAlgAvg();
-									}
+								if (gen.getBestAlgAvg() < bestGenAvg) {
+									bestGenAvg = gen.getBestAlgAvg();
 								}
 							}
 							DecimalFormat df = new DecimalFormat("#.000");
@@ -71,29 +70,34 @@ public class GeneratorGUI {
 	 * Create the application.
 	 */
 	public GeneratorGUI() {
-		String num = JOptionPane.showInputDialog("Enter number of threads to use:");
-		numThreads = Integer.parseInt(num);
-		gens = new GeneratorInterface[numThreads];
+		String num = JOptionPane.showInputDialog("Enter number of generators to run:");
+		numIslands = Integer.parseInt(num);
+		gens = new GeneratorInterface[numIslands];
+		IslandExchange exchange = new IslandExchange(numIslands, migrationInterval);
+		// the generators take turns on one thread per processor
+		scheduler = new IslandScheduler(Runtime.getRuntime().availableProcessors());
+		// all generators learn from each other which heuristic parameters work
+		ParamTuner prePhaseTuner = ParamTuner.forPrePhase();
+		ParamTuner improvementTuner = ParamTuner.forImprovement();
 		for (int i = 0; i < gens.length; i++) {
 			gens[i] = new GeneratorInterface();
+			gens[i].setExchange(exchange, i);
+			gens[i].setParamTuners(prePhaseTuner, improvementTuner);
 		}
-		List<String> fileLines;
 		String[] words = null;
 		try {
-			fileLines = Files.readAllLines(Paths.get("woerter.txt"));
-			words = new String[fileLines.size() - 1];
-			for (int i = 1; i < fileLines.size(); i++) {
-				words[i - 1] = fileLines.get(i);
-			}
+			words = Generator.readWordList("woerter.txt");
+			WordWeights weights = WordWeights.loadNextTo(Paths.get("woerter.txt"));
 			for (GeneratorInterface gen : gens) {
 				gen.setWordList(words);
+				gen.setWordWeights(weights);
 			}
 		} catch (IOException e) {
 			e.printStackTrace();
 			return;
 		}
 		for (GeneratorInterface gen : gens) {
-			gen.start();
+			scheduler.submit(gen);
 		}
 		initialize();
 	}
@@ -118,11 +122,8 @@ public class GeneratorGUI {
 		btnNewButton_1.addActionListener(new ActionListener() {
 			public void actionPerformed(ActionEvent e) {
 				for (GeneratorInterface gen : gens) {
-					synchronized (gen) {
-						gen.toggleGenRunning();
-						btnNewButton_1.setText(gen.isGenRunning() ? "Pause generator" : "Resume generator");
-						gen.notify();
-					}
+					gen.toggleGenRunning();
+					btnNewButton_1.setText(gen.isGenRunning() ? "Pause generator" : "Resume generator");
 				}
 			}
 		});
@@ -134,17 +135,14 @@ public class GeneratorGUI {
 				double bestGen = Double.POSITIVE_INFINITY;
 				GeneratorInterface bestGenObj = null;
 				for (GeneratorInterface gen : gens) {
-					synchronized (gen) {
-						if (gen.getBestAlgAvg() < bestGen) {
-							bestGen = gen.getBestAlgAvg();
-							bestGenObj = gen;
-						}
+					if (gen.getBestAlgAvg() < bestGen) {
+						bestGen = gen.getBestAlgAvg();
+						bestGenObj = gen;
 					}
 				}
 				System.out.println(bestGen);
-				synchronized (bestGenObj) {
+				if (bestGenObj != null) {
 					bestGenObj.saveAlg();
-					bestGenObj.notify();
 				}
 			}
 		});
@@ -156,29 +154,29 @@ public class GeneratorGUI {
 				ArrayList<GeneratorInterface> bestGens = new ArrayList<GeneratorInterface>();
 				ArrayList<Double> averages = new ArrayList<Double>();
 				for (GeneratorInterface gen : gens) {
-					synchronized (gen) {
-						// insert sorted
-						double avg = gen.getBestAlgAvg();
-						boolean gotInserted = false;
-						for (int i = 0; i < bestGens.size(); i++) {
-							if (avg < averages.get(i)) {
-								gotInserted = true;
-								bestGens.add(i, gen);
-								averages.add(i, avg);
-								break;
-							}
-						}
-						if (!gotInserted) {
-							bestGens.add(gen);
-							averages.add(avg);
+					// insert sorted
+					double avg = gen.getBestAlgAvg();
+					boolean gotInserted = false;
+					for (int i = 0; i < bestGens.size(); i++) {
+						if (avg < averages.get(i)) {
+							gotInserted = true;
+							bestGens.add(i, gen);
+							averages.add(i, avg);
+							break;
 						}
 					}
+					if (!gotInserted) {
+						bestGens.add(gen);
+						averages.add(avg);
+					}
 				}
-				for (int i = bestGens.size() / 2; i < bestGens.size(); i++) {
+				// each restarted generator continues from the tree of one of the better half, so they stay different
+				int half = bestGens.size() / 2;
+				for (int i = half; i < bestGens.size(); i++) {
 					GeneratorInterface gen = bestGens.get(i);
-					synchronized (gen) {
-						gen.newSeed();
-						gen.notify();
+					gen.newSeed();
+					if (i - half < half) {
+						bestGens.get(i - half).sendBestTo(Arrays.asList(gens).indexOf(gen));
 					}
 				}
 			}
@@ -187,7 +185,7 @@ public class GeneratorGUI {
 
 		JPanel panel_1 = new JPanel();
 		panel.add(panel_1, BorderLayout.CENTER);
-		panel_1.setLayout(new GridLayout(numThreads / 2, 1, 0, 0));
+		panel_1.setLayout(new GridLayout(numIslands / 2, 1, 0, 0));
 
 		int i = 0;
 		for (GeneratorInterface gen : gens) {
@@ -195,7 +193,7 @@ public class GeneratorGUI {
 			panel_1.add(panel_2, BorderLayout.CENTER);
 			panel_2.setLayout(new BorderLayout(2, 2));
 
-			JLabel title = new JLabel("Thread #" + ++i);
+			JLabel title = new JLabel("Generator #" + ++i);
 			panel_2.add(title, BorderLayout.NORTH);
 
 			JTextPane txtpnStartGeneratorTo = new JTextPane();
@@ -204,7 +202,12 @@ public class GeneratorGUI {
 			txtpnStartGeneratorTo.setEnabled(false);
 			txtpnStartGeneratorTo.setEditable(false);
 
-			gen.registerStatsPane(txtpnStartGeneratorTo);
+			gen.registerStatsListener(new StatsListener() {
+				public void statsChanged(String stats) {
+					txtpnStartGeneratorTo.setEnabled(true);
+					txtpnStartGeneratorTo.setText(stats);
+				}
+			});
 		}
 
 		JPanel panel_2 = new JPanel();
@@ -1,54 +1,133 @@
 package wordGuesserGenerator;
 
-import java.io.File;
-import java.io.FileNotFoundException;
-import java.io.PrintStream;
+import java.io.IOException;
+import java.nio.file.Path;
+import java.nio.file.Paths;
 import java.text.DecimalFormat;
 import java.util.ArrayList;
 import java.util.HashSet;
 import java.util.Random;
-
-import javax.swing.JTextPane;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.atomic.AtomicBoolean;
 
 /**
- * A guess tree generator running on a thread.
+ * A guess tree generator ("island"), run in short slices by an {@link IslandScheduler}.
  * Interfaces between the GUI and the heuristic generator.
  * 
  * @author libraun
  *
  */
-public class GeneratorInterface extends Thread {
-	private boolean stopThread = false;
-	private boolean runGenerator = false;
-	private boolean actionSaveAlg = false;
-	private boolean actionNewSeed = false;
+public class GeneratorInterface {
+	// how long a slice may take before the island gives its thread to the next one
+	private static final long SLICE_NANOS = 20 * 1000000L;
+	// how many initial trees are generated with the same parameters, one tree per step
+	private static final int PRE_PHASE_BATCH = 10;
+	
+	private volatile boolean stopped = false;
+	private volatile boolean runGenerator = false;
+	private volatile boolean actionSaveAlg = false;
+	private volatile boolean actionNewSeed = false;
+	// the island to send the best tree to, or -1
+	private volatile int actionSendTo = -1;
+	// set to abort the current step, e.g. a long generation, when the island is paused, stopped or reset
+	private final AtomicBoolean abortStep = new AtomicBoolean();
+	
+	private volatile IslandScheduler.Task task = null;
+	private volatile int priority = 0;
+	private boolean initialized = false;
+	private final CountDownLatch finished = new CountDownLatch(1);
 	
 	private HashSet<String> words = null;
 	private String[] wordArray = null; // duplicates are preserved
+	private WordWeights weights = null;
 	
 	private HeuristicParams params = new HeuristicParams();
+	private int maxTipLength = TipTable.DEFAULT_MAX_TIP_LENGTH;
 	private int endPrePhaseIterations = 100; // Iterations for which to use default parameters
 	private int endPrePhaseIterationsCurr = 0;
+	// the parameters of the current batch of initial trees, null between batches
+	private HeuristicParams prePhaseParams = null;
+	private ParamTuner.Draw prePhaseDraw = null;
+	private int prePhaseBatchTrees = 0;
+	private boolean prePhaseBatchImproved = false;
 	
 	private Generator g;
-	private GeneratedGuessNode bestAlg = null;
-	private double bestAlgAvg = Double.POSITIVE_INFINITY;
+	// read by other threads (GUI, CLI) while the scheduler runs the generator
+	private volatile GeneratedGuessNode bestAlg = null;
+	private volatile double bestAlgAvg = Double.POSITIVE_INFINITY;
+	// the tree which is mutated, the same object as bestAlg unless the acceptance policy keeps worse trees
+	private GeneratedGuessNode curAlg = null;
+	private AcceptancePolicy acceptancePolicy = new AcceptancePolicy.Greedy();
+	private ParamTuner prePhaseTuner = ParamTuner.forPrePhase();
+	private ParamTuner improvementTuner = ParamTuner.forImprovement();
+	// the parameter draws of the current mutation
+	private ArrayList<ParamTuner.Draw> mutationDraws = new ArrayList<ParamTuner.Draw>();
+	
+	private volatile long iterations = 0;
+	private long iterationBudget = Long.MAX_VALUE;
+	
+	private boolean deterministic = false;
 	
-	private JTextPane statsPane;
+	private IslandExchange exchange = null;
+	private int island = -1;
+	private double lastPublishedAvg = Double.POSITIVE_INFINITY;
+	// the synchronous migration round the island waits for, or -1
+	private long pendingRound = -1;
+	
+	private Path checkpointDirectory = null;
+	private long checkpointIntervalMillis = 0;
+	private boolean resume = false;
+	private long lastCheckpoint = 0;
+	
+	private StatsListener statsListener = null;
+	private volatile GeneratorStats stats = null;
 	
 	private String[] statsLines = new String[] {"", "", ""};
 	private boolean needUpdateStats = false;
 	
-	private Random r = new Random();
+	private Random r;
 	private DecimalFormat df = new DecimalFormat("##.000");
 	
 	/**
-	 * Stops this thread.
+	 * Constructs a generator with a random seed.
 	 */
-	public synchronized void stopThread() {
-		stopThread = true;
+	public GeneratorInterface() {
+		this(new Random().nextLong());
+	}
+	
+	/**
+	 * Constructs a generator.
+	 * @param seed The seed for all random decisions of this generator.
+	 */
+	public GeneratorInterface(long seed) {
+		r = new Random(seed);
+	}
+	
+	/**
+	 * Stops this generator. The current step is aborted, so the generator finishes within milliseconds.
+	 */
+	public void stop() {
+		stopped = true;
+		abortStep.set(true);
+		wake();
     }
 	
+	/**
+	 * @return If the generator has finished, because it was stopped or used up its iteration budget.
+	 */
+	public boolean isFinished() {
+		return finished.getCount() == 0;
+	}
+	
+	/**
+	 * Waits until the generator has finished.
+	 * @throws InterruptedException If the waiting thread was interrupted.
+	 */
+	public void awaitFinished() throws InterruptedException {
+		finished.await();
+	}
+	
 	/**
 	 * @return If the generator is initialized.
 	 */
@@ -57,16 +136,16 @@ public class GeneratorInterface extends Thread {
 	}
     
 	/**
-	 * Toggle the state of the generator (started or not started/paused).
+	 * Toggle the state of the generator (started or not started/paused). Pausing aborts the current step.
 	 */
     public synchronized void toggleGenRunning() {
     	runGenerator = !runGenerator;
-    	if (runGenerator) {
-			statsPane.setEnabled(true);
-			if (endPrePhaseIterationsCurr == 0) {
-				statsPane.setText("Started generator!");
-			}
+    	if (!runGenerator) {
+    		abortStep.set(true);
+    	} else if (endPrePhaseIterationsCurr == 0) {
+    		publishStats("Started generator!");
     	}
+    	wake();
     }
     /**
      * @return If the generator is running.
@@ -78,18 +157,55 @@ public class GeneratorInterface extends Thread {
     /**
      * Save the best guess tree.
      */
-    public synchronized void saveAlg() {
+    public void saveAlg() {
     	actionSaveAlg = true;
+    	wake();
     }
 
     /**
-     * Reset this generator.
+     * Reset this generator. The current step is aborted.
      */
-    public synchronized void newSeed() {
+    public void newSeed() {
     	actionNewSeed = true;
-    	bestAlgAvg = Double.POSITIVE_INFINITY;
-    	statsLines = new String[] {"", "", ""};
-    	endPrePhaseIterationsCurr = 0;
+    	abortStep.set(true);
+    	wake();
+    }
+    
+    /**
+     * Sends the best tree of this generator to the inbox of another island, e.g. one that was just reset with
+     * {@link #newSeed()}. The island adopts it at its next slice and skips generating initial trees.
+     * Does nothing if this generator has no exchange or no tree yet.
+     * @param island The receiving island in the exchange of this generator.
+     */
+    public void sendBestTo(int island) {
+    	actionSendTo = island;
+    	wake();
+    }
+    
+    /**
+     * @return The priority of this generator in its scheduler.
+     */
+    public int getPriority() {
+    	return priority;
+    }
+    
+    /**
+     * Sets the priority of this generator. When generators wait for a thread of the scheduler, the ones with the
+     * highest priority run first.
+     * @param priority The priority, 0 by default.
+     */
+    public void setPriority(int priority) {
+    	this.priority = priority;
+    }
+    
+    void setTask(IslandScheduler.Task task) {
+    	this.task = task;
+    }
+    
+    // lets the scheduler run this generator again, e.g. after it was paused
+    private void wake() {
+    	IslandScheduler.Task t = task;
+    	if (t != null) t.wake();
     }
     
     /**
@@ -104,117 +220,446 @@ public class GeneratorInterface extends Thread {
     	}
     }
     
+    /**
+     * Lets the generator minimize the weighted average number of guesses instead. Must be set before the generator is submitted.
+     * @param weights The weights of the words, or null to weigh them the same.
+     */
+    public void setWordWeights(WordWeights weights) {
+    	this.weights = weights;
+    }
+    
     /**
      * @return Get the average of the best guess tree.
      */
     public synchronized double getBestAlgAvg() {
     	return bestAlgAvg;
     }
+    
+    /**
+     * The best guess tree is changed in place while the generator runs,
+     * so this should only be used once the generator has finished.
+     * @return The best guess tree, or null if none was generated yet.
+     */
+    public synchronized GeneratedGuessNode getBestAlg() {
+    	return bestAlg;
+    }
+    
+    /**
+     * @return The counters of this generator, or null if it hasn't started yet.
+     */
+    public GeneratorStats getStats() {
+    	return stats;
+    }
+    
+    /**
+     * @return The number of mutations tried while iteratively improving the guess tree.
+     */
+    public long getIterations() {
+    	return iterations;
+    }
+    
+    /**
+     * Lets large subtrees be generated in parallel on the fork/join pool. Must be set before the generator is submitted.
+     * @param cutoff From how many words on the child nodes are generated in parallel (0 disables it).
+     */
+    public void setParallelCutoff(int cutoff) {
+    	params.parallelCutoff = cutoff;
+    }
+    
+    /**
+     * Lets the useful tips be scored in parallel on the fork/join pool for large nodes. Must be set before the generator is submitted.
+     * @param minWords From how many words the tips are scored in parallel (0 disables it).
+     */
+    public void setParallelScoringMinWords(int minWords) {
+    	params.parallelScoringMinWords = minWords;
+    }
+    
+    /**
+     * Sets the maximum length of the tips the generator considers. Must be set before the generator is submitted.
+     * @param length The maximum length, in code points.
+     */
+    public void setMaxTipLength(int length) {
+    	maxTipLength = length;
+    }
+    
+    /**
+     * Lets this generator exchange guess trees with other generators. Must be set before the generator is submitted.
+     * @param exchange The exchange shared by all generators.
+     * @param island The index of this generator in the exchange.
+     */
+    public void setExchange(IslandExchange exchange, int island) {
+    	this.exchange = exchange;
+    	this.island = island;
+    }
+    
+    /**
+     * Sets how the generator decides whether to keep a mutation. Must be set before the generator is submitted.
+     * @param policy The policy, which must not be shared with other generators.
+     */
+    public void setAcceptancePolicy(AcceptancePolicy policy) {
+    	acceptancePolicy = policy;
+    }
+    
+    /**
+     * Sets the tuners for the heuristic parameters, which can be shared with other generators. Must be set before the generator is submitted.
+     * @param prePhase The tuner for generating the initial trees.
+     * @param improvement The tuner for re-generating subtrees.
+     */
+    public void setParamTuners(ParamTuner prePhase, ParamTuner improvement) {
+    	prePhaseTuner = prePhase;
+    	improvementTuner = improvement;
+    }
+    
+    /**
+     * Lets this generator write its state periodically, see {@link IslandCheckpoint}. Must be set before the generator is submitted,
+     * and only if it has an island index (see {@link #setExchange(IslandExchange, int)}).
+     * @param directory The directory to write the checkpoints to.
+     * @param intervalMillis How often to write a checkpoint. A last one is written when the generator finishes.
+     * @param resume If the generator should continue from its checkpoint in the directory, if there is one.
+     */
+    public void setCheckpoints(Path directory, long intervalMillis, boolean resume) {
+    	checkpointDirectory = directory;
+    	checkpointIntervalMillis = intervalMillis;
+    	this.resume = resume;
+    }
+    
+    /**
+     * Makes the result of this generator only depend on its seed and iteration budget, not on the timing of other threads.
+     * The generator then doesn't share its memo of subtrees, and the tuners passed to {@link #setParamTuners(ParamTuner, ParamTuner)}
+     * and the exchange passed to {@link #setExchange(IslandExchange, int)} must not be shared either, or be synchronous.
+     * Must be set before the generator is submitted.
+     * @param deterministic If the generator should be deterministic.
+     */
+    public void setDeterministic(boolean deterministic) {
+    	this.deterministic = deterministic;
+    }
+    
+    /**
+     * Lets the generator finish after a number of mutations. Must be set before the generator is submitted.
+     * @param budget The number of mutations to try.
+     */
+    public void setIterationBudget(long budget) {
+    	iterationBudget = budget;
+    }
 
 	private boolean firstTimeStep2 = true;
 	
-	@Override
-	public void run() {
-		super.run();
-		
-		while (!stopThread && words == null) {
-			synchronized (this) {
-				// wait till the a new action needs to be performed
-				try {
-					wait();
-				} catch (InterruptedException e) { e.printStackTrace(); }
-			}
-		}
-		
-		g = new Generator(words);
-		
-		while (!stopThread) {
-			if (!runGenerator && !actionSaveAlg && !actionNewSeed) {
-				synchronized (this) {
-					try {
-						// wait till the a new action needs to be performed
-						wait();
-					} catch (InterruptedException e) { e.printStackTrace(); }
-				}
+	/**
+	 * Does a bounded amount of work: a few initial trees or mutations, until about {@link #SLICE_NANOS} have passed.
+	 * Only called by the scheduler, never by two threads at once.
+	 * @return What the scheduler should do with this generator, e.g. {@link IslandScheduler#CONTINUE}.
+	 */
+	int runSlice() {
+		// an abort requested before this point is handled by the checks below
+		abortStep.set(false);
+		try {
+			if (!initialized) {
+				if (words == null && !stopped) return IslandScheduler.IDLE;
+				initialize();
 			}
 			if (actionSaveAlg) {
 				if (bestAlg != null) {
-					String serTree = bestAlg.serializeGuessTree();
 					try {
-						PrintStream out = new PrintStream(new File("alg.txt"));
-						out.print(serTree);
-					} catch (FileNotFoundException e) { e.printStackTrace(); }
+						GuessTreeIO.save(bestAlg, Paths.get("alg.bin"));
+					} catch (IOException e) { e.printStackTrace(); }
 				}
 				actionSaveAlg = false;
 			}
 			if (actionNewSeed) {
 				bestAlgAvg = Double.POSITIVE_INFINITY;
+				lastPublishedAvg = Double.POSITIVE_INFINITY;
 				bestAlg = null;
+				curAlg = null;
+				statsLines = new String[] {"", "", ""};
+				endPrePhaseIterationsCurr = 0;
+				prePhaseParams = null;
+				// otherwise annealing would go on at the temperature of the old tree
+				acceptancePolicy.reset();
+				stats.resetBest();
 				actionNewSeed = false;
 			}
-			if (runGenerator) {
-				if (endPrePhaseIterationsCurr < endPrePhaseIterations) {
-					endPrePhaseIterationsCurr += 10;
-					try {
-						HeuristicParams p = new HeuristicParams();
-						p.defaultGoalWeights = new double[] {r.nextDouble() * 0.3 + 0.1, r.nextDouble() * 0.3 + 0.1, r.nextDouble() * 0.3 + 0.1, r.nextDouble() * 0.3 + 0.1, r.nextDouble() * 0.3 + 0.1};
-						p.useDefaultGoalWeightsProb = 1;
-						p.countOnesThreshold = (int) (r.nextDouble() * 20);
-						GeneratedGuessNode node = g.generateGuessTreeRandomized(10, p);
-						double avg = node.calcAverage(wordArray);
-						if (avg < bestAlgAvg) {
-							bestAlgAvg = avg;
-							bestAlg = node;
-							needUpdateStats = true;
-						}
-						statsLines[0] = "Generating initial starting algorithm... (" +
-							endPrePhaseIterationsCurr +  "/" + endPrePhaseIterations + ", avg = " + df.format(bestAlgAvg) + ")";
-						
-					} catch (Exception e) {
-						statsLines[2] = "Exception occured! " + e.getLocalizedMessage();
-						e.printStackTrace();
-						statsPane.setText(statsLines[0] + "\n" + statsLines[1] + "\n" + statsLines[2]);
-						stopThread = true;
-						continue;
-					}
-				} else {
-					if (firstTimeStep2) {
-						firstTimeStep2 = false;
-						needUpdateStats = true;
-					}
-					statsLines[1] = "Iteratively improving algorithm...";
-					try {
-						// create a copy in case mutated tree has worse average
-					    GeneratedGuessNode oldTree = bestAlg.clone();
-				        double oldAvg = bestAlg.calcAverage(wordArray);
-				        
-				        // choose between re-generating and swapping
-						iterativeImproveTree(bestAlg, r.nextDouble() > 0.5);
-					    
-				        double newAvg = bestAlg.calcAverage(wordArray);
-				        if (oldAvg < newAvg) {
-				        	bestAlg = oldTree.clone();
-				        } else if (oldAvg > newAvg) {
-				            statsLines[1] += "\nImprovement: " + df.format(oldAvg) + " -> " + df.format(newAvg);
-				            needUpdateStats = true;
-				            bestAlgAvg = newAvg;
-				        }
-					} catch (Exception e) {
-						statsLines[2] = "Exception occured! " + e.getLocalizedMessage();
-						e.printStackTrace();
-						statsPane.setText(statsLines[0] + "\n" + statsLines[1] + "\n" + statsLines[2]);
-						stopThread = true;
-						continue;
-					}
+			int sendTo = actionSendTo;
+			if (sendTo >= 0) {
+				actionSendTo = -1;
+				if (exchange != null && bestAlg != null) {
+					exchange.send(sendTo, new IslandExchange.Migrant(bestAlg, bestAlgAvg, island));
+				}
+			}
+			if (exchange != null && !exchange.isSynchronous()) {
+				IslandExchange.Migrant m = exchange.takeInbox(island);
+				if (m != null && actionNewSeed) {
+					// sent for after the reset, which the next slice does
+					exchange.send(island, m);
+				} else if (m != null && adopt(m)) {
+					endPrePhaseIterationsCurr = Math.max(endPrePhaseIterationsCurr, endPrePhaseIterations);
+				}
+			}
+			if (stopped || iterations >= iterationBudget) {
+				finish();
+				return IslandScheduler.DONE;
+			}
+			if (pendingRound >= 0) {
+				if (!exchange.isComplete(pendingRound)) return IslandScheduler.PARKED;
+				adopt(exchange.result(pendingRound));
+				pendingRound = -1;
+			}
+			if (!runGenerator) return IslandScheduler.IDLE;
+			
+			long sliceEnd = System.nanoTime() + SLICE_NANOS;
+			do {
+				step();
+				if (pendingRound >= 0) break;
+			} while (System.nanoTime() < sliceEnd && !abortStep.get() && iterations < iterationBudget);
+			
+			if (checkpointDirectory != null && System.currentTimeMillis() - lastCheckpoint >= checkpointIntervalMillis) {
+				writeCheckpoint();
+			}
+			if (needUpdateStats) {
+				publishStats(statsLines[0] + "\n" + statsLines[1] + "\n" + statsLines[2]);
+				needUpdateStats = false;
+			}
+			return (pendingRound >= 0) ? IslandScheduler.PARKED : IslandScheduler.CONTINUE;
+		} catch (CancellationException e) {
+			// the step was aborted and undone, the next slice handles the reason
+			return IslandScheduler.CONTINUE;
+		} catch (RuntimeException e) {
+			e.printStackTrace();
+			finish();
+			return IslandScheduler.DONE;
+		}
+	}
+	
+	private void initialize() {
+		initialized = true;
+		if (words == null) return; // stopped before getting a word list
+		stats = new GeneratorStats((island >= 0) ? island : System.identityHashCode(this));
+		stats.register();
+		// before the heuristic is seeded, so that it is seeded from the restored random generator
+		if (resume) resumeFromCheckpoint();
+		g = new Generator(words, r.nextLong(), maxTipLength, weights);
+		g.setAbortFlag(abortStep);
+		if (deterministic) g.usePrivateMemo();
+		lastCheckpoint = System.currentTimeMillis();
+	}
+	
+	private void finish() {
+		try {
+			if (stats != null) {
+				if (checkpointDirectory != null) writeCheckpoint();
+				stats.unregister();
+			}
+		} finally {
+			// in synchronous mode, the other islands must not wait for this one anymore
+			if (exchange != null) exchange.leave(island);
+			finished.countDown();
+		}
+	}
+	
+	private void resumeFromCheckpoint() {
+		IslandCheckpoint c;
+		try {
+			c = IslandCheckpoint.load(checkpointDirectory, island);
+		} catch (IOException e) {
+			statsLines[2] = "Couldn't resume: " + e.getLocalizedMessage();
+			e.printStackTrace();
+			return;
+		}
+		if (c == null) return;
+		if (!c.wordListFingerprint.equals(TreeCache.fingerprint(wordArray))) {
+			statsLines[2] = "Ignoring checkpoint for a different word list";
+			return;
+		}
+		// calculated again, so that the checkpoint still fits if the word weights were changed
+		double avg;
+		try {
+			avg = c.best.calcAverage(wordArray, weights);
+		} catch (Exception e) {
+			statsLines[2] = "Ignoring invalid checkpoint: " + e.getLocalizedMessage();
+			return;
+		}
+		String policyNote = "";
+		if (c.policyState != null && c.policyName.equals(acceptancePolicy.getClass().getName())) {
+			try {
+				acceptancePolicy.setState(c.policyState);
+			} catch (IllegalArgumentException e) {
+				policyNote = ", acceptance schedule restarted";
+			}
+		} else {
+			policyNote = ", acceptance schedule restarted";
+		}
+		r = c.random;
+		iterations = c.iterations;
+		endPrePhaseIterationsCurr = c.prePhaseIterations;
+		bestAlg = c.best;
+		bestAlgAvg = avg;
+		curAlg = (c.current != null) ? c.current : (acceptancePolicy.isGreedy() ? bestAlg : bestAlg.clone());
+		stats.recordBest(bestAlgAvg, "checkpoint");
+		statsLines[0] = "Resumed from checkpoint (" + iterations + " mutations, avg = " + df.format(bestAlgAvg) + policyNote + ")";
+		publishStats(statsLines[0]);
+	}
+	
+	private void writeCheckpoint() {
+		lastCheckpoint = System.currentTimeMillis();
+		if (bestAlg == null) return;
+		GeneratedGuessNode current = (curAlg == bestAlg) ? null : curAlg;
+		try {
+			new IslandCheckpoint(TreeCache.fingerprint(wordArray), iterations, endPrePhaseIterationsCurr, bestAlgAvg, r,
+					acceptancePolicy.getClass().getName(), acceptancePolicy.getState(), bestAlg, current).save(checkpointDirectory, island);
+		} catch (IOException e) {
+			// the previous checkpoint is still there
+			e.printStackTrace();
+		}
+	}
+	
+	// generates one initial tree or tries one mutation; throws CancellationException if it was aborted
+	private void step() {
+		if (endPrePhaseIterationsCurr < endPrePhaseIterations) {
+			try {
+				if (prePhaseParams == null) {
+					prePhaseParams = new HeuristicParams();
+					prePhaseDraw = prePhaseTuner.draw(r, prePhaseParams);
+					prePhaseParams.parallelCutoff = params.parallelCutoff;
+					prePhaseParams.parallelScoringMinWords = params.parallelScoringMinWords;
+					prePhaseBatchTrees = 0;
+					prePhaseBatchImproved = false;
 				}
-				if (needUpdateStats) {
-					statsPane.setText(statsLines[0] + "\n" + statsLines[1] + "\n" + statsLines[2]);
-					needUpdateStats = false;
+				long start = System.nanoTime();
+				GeneratedGuessNode node = g.generateGuessTree(prePhaseParams);
+				long generated = System.nanoTime();
+				endPrePhaseIterationsCurr++;
+				prePhaseBatchTrees++;
+				double avg = node.calcAverage(wordArray, weights);
+				stats.addHeuristicNanos(generated - start);
+				stats.addEvaluationNanos(System.nanoTime() - generated);
+				if (avg < bestAlgAvg) {
+					bestAlgAvg = avg;
+					bestAlg = node;
+					curAlg = acceptancePolicy.isGreedy() ? node : node.clone();
+					stats.recordBest(avg, "pre-phase");
+					needUpdateStats = true;
+					prePhaseBatchImproved = true;
 				}
+				if (prePhaseBatchTrees == PRE_PHASE_BATCH || endPrePhaseIterationsCurr >= endPrePhaseIterations) {
+					prePhaseTuner.reward(prePhaseDraw, prePhaseBatchImproved);
+					prePhaseParams = null;
+				}
+				statsLines[0] = "Generating initial starting algorithm... (" +
+					endPrePhaseIterationsCurr +  "/" + endPrePhaseIterations + ", avg = " + df.format(bestAlgAvg) + ")";
+				
+			} catch (CancellationException e) {
+				throw e;
+			} catch (Exception e) {
+				fail(e);
+			}
+		} else {
+			if (firstTimeStep2) {
+				firstTimeStep2 = false;
+				needUpdateStats = true;
+			}
+			statsLines[1] = "Iteratively improving algorithm...";
+			iterations++;
+			try {
+				MutationEvent event = stats.beginMutation();
+				// record the changed nodes in case mutated tree has worse average
+				curAlg.beginMutation();
+				mutationDraws.clear();
+				long start = System.nanoTime();
+		        double oldAvg = curAlg.calcAverage(wordArray, weights);
+		        stats.addEvaluationNanos(System.nanoTime() - start);
+		        
+		        // choose between re-generating and swapping
+		        boolean swap = r.nextDouble() > 0.5;
+		        try {
+		        	iterativeImproveTree(curAlg, swap);
+		        } catch (CancellationException e) {
+		        	// as if the mutation had never been tried
+		        	curAlg.rollbackMutation();
+		        	iterations--;
+		        	throw e;
+		        }
+			    
+				start = System.nanoTime();
+		        double newAvg = curAlg.calcAverage(wordArray, weights);
+		        long evaluated = System.nanoTime();
+		        stats.addEvaluationNanos(evaluated - start);
+		        boolean kept = acceptancePolicy.accept(oldAvg, newAvg, r);
+		        if (!kept) {
+		        	curAlg.rollbackMutation();
+		        } else {
+		        	curAlg.commitMutation();
+		        }
+		        for (ParamTuner.Draw draw : mutationDraws) {
+		        	improvementTuner.reward(draw, kept && newAvg < oldAvg);
+		        }
+		        if (kept && newAvg < bestAlgAvg) {
+		        	statsLines[1] += "\nImprovement: " + df.format(bestAlgAvg) + " -> " + df.format(newAvg);
+		        	needUpdateStats = true;
+		        	bestAlgAvg = newAvg;
+		        	// without a greedy policy, the current tree may get worse again
+		        	bestAlg = acceptancePolicy.isGreedy() ? curAlg : curAlg.clone();
+		        	stats.recordBest(newAvg, "mutation");
+		        }
+		        stats.addCopyNanos(System.nanoTime() - evaluated);
+		        stats.recordMutation(event, swap ? GeneratorStats.SWAP : GeneratorStats.REGENERATE, kept, oldAvg, newAvg);
+		        if (exchange != null && exchange.getMigrationInterval() > 0 && iterations % exchange.getMigrationInterval() == 0) {
+		        	migrate();
+		        }
+			} catch (CancellationException e) {
+				throw e;
+			} catch (Exception e) {
+				fail(e);
 			}
 		}
 	}
 	
+	// stops the generator after an unexpected error
+	private void fail(Exception e) {
+		statsLines[2] = "Exception occured! " + e.getLocalizedMessage();
+		e.printStackTrace();
+		publishStats(statsLines[0] + "\n" + statsLines[1] + "\n" + statsLines[2]);
+		stopped = true;
+		abortStep.set(true);
+	}
+	
+	// publishes the best tree if it improved and adopts a better one from the exchange;
+	// in synchronous mode, offers the best tree and waits for the other islands
+	private void migrate() {
+		long start = System.nanoTime();
+		if (exchange.isSynchronous()) {
+			// the tree is adopted once all islands have offered theirs, see runSlice
+			pendingRound = exchange.offer(island, bestAlg, bestAlgAvg, new Runnable() {
+				@Override
+				public void run() {
+					wake();
+				}
+			});
+			stats.addCopyNanos(System.nanoTime() - start);
+			return;
+		}
+		if (bestAlgAvg < lastPublishedAvg) {
+			exchange.publish(island, bestAlg, bestAlgAvg);
+			lastPublishedAvg = bestAlgAvg;
+		}
+		// the inbox is emptied at the start of every slice, see runSlice
+		adopt(exchange.getBest());
+		stats.addCopyNanos(System.nanoTime() - start);
+	}
+	
+	// adopts a tree of another island if it is better than the own one
+	private boolean adopt(IslandExchange.Migrant m) {
+		if (m != null && m.avg < bestAlgAvg) {
+			bestAlg = m.copyTree();
+			bestAlgAvg = m.avg;
+			curAlg = acceptancePolicy.isGreedy() ? bestAlg : m.copyTree();
+			lastPublishedAvg = m.avg; // already known to the exchange
+			stats.recordBest(m.avg, "migration");
+			statsLines[1] += "\nAdopted tree" + ((m.island >= 0) ? " of generator #" + (m.island + 1) : "") + ": " + df.format(m.avg);
+			needUpdateStats = true;
+			return true;
+		}
+		return false;
+	}
+	
 	private void iterativeImproveTree(GeneratedGuessNode root, boolean methodIsSwap) throws Exception {
         if (!methodIsSwap) {
     	    int num = (int) Math.floor(r.nextDouble() * 12 + 1);
@@ -224,16 +669,15 @@ public class GeneratorInterface extends Thread {
                 int index = (int) Math.floor(r.nextDouble() * list.size());
                 GeneratedGuessNode thisNode = list.get(index);
                 
-                params.defaultGoalWeights = new double[] {r.nextDouble(), r.nextDouble(), r.nextDouble(), r.nextDouble(), r.nextDouble()};
-                params.useDefaultGoalWeightsProb = r.nextDouble();
-                params.countOnesThreshold = (int) Math.floor(r.nextDouble() * 25);
+                mutationDraws.add(improvementTuner.draw(r, params));
+                long start = System.nanoTime();
                 GeneratedGuessNode newNode = g.generateGuessNodeRandomized(thisNode, params);
+                long generated = System.nanoTime();
                 
-                thisNode.guess = newNode.guess;
-                for (int n = 0; n < 5; n++) {
-                	thisNode.setNthChild(n, newNode.getChild(n));
-                }
-                root.calcAverage(wordArray);
+                thisNode.replaceWith(newNode);
+                root.calcAverage(wordArray, weights);
+                stats.addHeuristicNanos(generated - start);
+                stats.addEvaluationNanos(System.nanoTime() - generated);
             }
         } else {
     	    ArrayList<GeneratedGuessNode> list = getGuessList(root, false);
@@ -251,15 +695,11 @@ public class GeneratorInterface extends Thread {
             int swapIndex = (int) Math.floor(r.nextDouble() * possChildren.size());
             GeneratedGuessNode swapNode = possChildren.get(swapIndex);
             
-            String tmp = thisNode.guess;
-            thisNode.guess = swapNode.guess;
-            swapNode.guess = tmp;
-            
-            GeneratedGuessNode newNode = g.generateSubguessesFromGuess(thisNode, params);
-            thisNode.guess = newNode.guess;
-            for (int n = 0; n < 5; n++) {
-            	thisNode.setNthChild(n, newNode.getChild(n));
-            }
+            // the words below the node stay the same, so only the guess of the child is needed
+            long start = System.nanoTime();
+            GeneratedGuessNode newNode = g.generateSubguessesFromGuess(thisNode, swapNode.guess, params);
+            stats.addHeuristicNanos(System.nanoTime() - start);
+            thisNode.replaceWith(newNode);
         }
 	}
 	
@@ -280,7 +720,17 @@ public class GeneratorInterface extends Thread {
 	    return list;
 	}
 	
-	public void registerStatsPane(JTextPane p) {
-		statsPane = p;
+	private void publishStats(String stats) {
+		if (statsListener != null) {
+			statsListener.statsChanged(stats);
+		}
+	}
+	
+	/**
+	 * Sets the listener which gets the status text of this generator. Without one, no status text is shown.
+	 * @param l The listener.
+	 */
+	public void registerStatsListener(StatsListener l) {
+		statsListener = l;
 	}
 }
@@ -0,0 +1,218 @@
+package wordGuesserGenerator;
+
+import java.lang.management.ManagementFactory;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+import javax.management.JMException;
+import javax.management.MBeanServer;
+import javax.management.ObjectName;
+
+/**
+ * The counters of one generator thread. They are updated by the thread and can be read from any thread,
+ * e.g. through JMX after {@link #register()}. Mutations and improvements are also recorded as JFR events.
+ *
+ * @author libraun
+ *
+ */
+public class GeneratorStats implements GeneratorStatsMBean {
+	/**
+	 * Mutation kind: a subtree was generated again.
+	 */
+	public static final int REGENERATE = 0;
+	/**
+	 * Mutation kind: the guess of a node was swapped with the guess of a child.
+	 */
+	public static final int SWAP = 1;
+
+	private static final String[] KIND_NAMES = {"regenerate", "swap"};
+
+	private final int island;
+	private final long startNanos = System.nanoTime();
+	private final AtomicLongArray accepted = new AtomicLongArray(2);
+	private final AtomicLongArray rejected = new AtomicLongArray(2);
+	private final AtomicLong heuristicNanos = new AtomicLong();
+	private final AtomicLong evaluationNanos = new AtomicLong();
+	private final AtomicLong copyNanos = new AtomicLong();
+	private final AtomicLong improvements = new AtomicLong();
+	private volatile double bestAverage = Double.POSITIVE_INFINITY;
+	private ObjectName name = null;
+
+	/**
+	 * @param island The index of the generator, which is part of the JMX name.
+	 */
+	public GeneratorStats(int island) {
+		this.island = island;
+	}
+
+	/**
+	 * Registers the counters with the platform MBean server. Failing to do so is not fatal and only reported.
+	 */
+	public synchronized void register() {
+		try {
+			ObjectName n = new ObjectName("wordGuesserGenerator:type=Generator,island=" + island);
+			ManagementFactory.getPlatformMBeanServer().registerMBean(this, n);
+			name = n;
+		} catch (JMException e) {
+			System.err.println("Could not register generator statistics: " + e);
+		}
+	}
+
+	/**
+	 * Removes the counters from the platform MBean server, if they were registered.
+	 */
+	public synchronized void unregister() {
+		if (name == null) return;
+		MBeanServer server = ManagementFactory.getPlatformMBeanServer();
+		try {
+			server.unregisterMBean(name);
+		} catch (JMException e) {
+			System.err.println("Could not unregister generator statistics: " + e);
+		}
+		name = null;
+	}
+
+	/**
+	 * Starts the JFR event of a mutation, which is finished by {@link #recordMutation(MutationEvent, int, boolean, double, double)}.
+	 * @return The event.
+	 */
+	MutationEvent beginMutation() {
+		MutationEvent e = new MutationEvent();
+		e.begin();
+		return e;
+	}
+
+	/**
+	 * Counts a finished mutation.
+	 * @param e The event returned by {@link #beginMutation()}.
+	 * @param kind {@link #REGENERATE} or {@link #SWAP}.
+	 * @param kept If the mutation was kept.
+	 * @param oldAvg The average before the mutation.
+	 * @param newAvg The average after the mutation.
+	 */
+	void recordMutation(MutationEvent e, int kind, boolean kept, double oldAvg, double newAvg) {
+		if (kept) {
+			accepted.incrementAndGet(kind);
+		} else {
+			rejected.incrementAndGet(kind);
+		}
+		e.end();
+		if (e.shouldCommit()) {
+			e.island = island;
+			e.kind = KIND_NAMES[kind];
+			e.accepted = kept;
+			e.oldAverage = oldAvg;
+			e.newAverage = newAvg;
+			e.commit();
+		}
+	}
+
+	/**
+	 * Records a new best tree.
+	 * @param avg The average of the tree.
+	 * @param source How the tree was found: "pre-phase", "mutation", "migration" or "checkpoint".
+	 */
+	void recordBest(double avg, String source) {
+		bestAverage = avg;
+		improvements.incrementAndGet();
+		ImprovementEvent e = new ImprovementEvent();
+		if (e.shouldCommit()) {
+			e.island = island;
+			e.average = avg;
+			e.source = source;
+			e.commit();
+		}
+	}
+
+	/**
+	 * Forgets the best tree, e.g. when the generator starts over.
+	 */
+	void resetBest() {
+		bestAverage = Double.POSITIVE_INFINITY;
+	}
+
+	void addHeuristicNanos(long nanos) {
+		heuristicNanos.addAndGet(nanos);
+	}
+
+	void addEvaluationNanos(long nanos) {
+		evaluationNanos.addAndGet(nanos);
+	}
+
+	void addCopyNanos(long nanos) {
+		copyNanos.addAndGet(nanos);
+	}
+
+	@Override
+	public int getIsland() {
+		return island;
+	}
+
+	@Override
+	public long getMutations() {
+		return accepted.get(REGENERATE) + accepted.get(SWAP) + rejected.get(REGENERATE) + rejected.get(SWAP);
+	}
+
+	@Override
+	public double getMutationsPerSecond() {
+		long nanos = System.nanoTime() - startNanos;
+		return (nanos == 0) ? 0 : getMutations() * 1e9 / nanos;
+	}
+
+	@Override
+	public long getRegenerateAccepted() {
+		return accepted.get(REGENERATE);
+	}
+
+	@Override
+	public long getRegenerateRejected() {
+		return rejected.get(REGENERATE);
+	}
+
+	@Override
+	public long getSwapAccepted() {
+		return accepted.get(SWAP);
+	}
+
+	@Override
+	public long getSwapRejected() {
+		return rejected.get(SWAP);
+	}
+
+	@Override
+	public double getAcceptanceRate() {
+		long mutations = getMutations();
+		return (mutations == 0) ? 0 : (double) (accepted.get(REGENERATE) + accepted.get(SWAP)) / mutations;
+	}
+
+	@Override
+	public long getHeuristicMillis() {
+		return TimeUnit.NANOSECONDS.toMillis(heuristicNanos.get());
+	}
+
+	@Override
+	public long getEvaluationMillis() {
+		return TimeUnit.NANOSECONDS.toMillis(evaluationNanos.get());
+	}
+
+	@Override
+	public long getCopyMillis() {
+		return TimeUnit.NANOSECONDS.toMillis(copyNanos.get());
+	}
+
+	@Override
+	public long getUptimeMillis() {
+		return TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - startNanos);
+	}
+
+	@Override
+	public double getBestAverage() {
+		return bestAverage;
+	}
+
+	@Override
+	public long getImprovements() {
+		return improvements.get();
+	}
+}
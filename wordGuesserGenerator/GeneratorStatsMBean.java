@@ -0,0 +1,80 @@
+package wordGuesserGenerator;
+
+/**
+ * Counters of one generator thread, exposed through JMX as {@code wordGuesserGenerator:type=Generator,island=<n>}.
+ * All times are in milliseconds and all counters start when the thread starts.
+ *
+ * @author libraun
+ *
+ */
+public interface GeneratorStatsMBean {
+	/**
+	 * @return The index of the generator.
+	 */
+	int getIsland();
+
+	/**
+	 * @return The number of mutations tried.
+	 */
+	long getMutations();
+
+	/**
+	 * @return The average number of mutations per second since the start.
+	 */
+	double getMutationsPerSecond();
+
+	/**
+	 * @return The number of kept mutations which re-generated subtrees.
+	 */
+	long getRegenerateAccepted();
+
+	/**
+	 * @return The number of undone mutations which re-generated subtrees.
+	 */
+	long getRegenerateRejected();
+
+	/**
+	 * @return The number of kept mutations which swapped a guess with the guess of a child.
+	 */
+	long getSwapAccepted();
+
+	/**
+	 * @return The number of undone mutations which swapped a guess with the guess of a child.
+	 */
+	long getSwapRejected();
+
+	/**
+	 * @return The share of kept mutations, between 0 and 1.
+	 */
+	double getAcceptanceRate();
+
+	/**
+	 * @return The time spent generating (sub)trees with the heuristic.
+	 */
+	long getHeuristicMillis();
+
+	/**
+	 * @return The time spent calculating averages.
+	 */
+	long getEvaluationMillis();
+
+	/**
+	 * @return The time spent copying trees and undoing mutations.
+	 */
+	long getCopyMillis();
+
+	/**
+	 * @return The time since the start.
+	 */
+	long getUptimeMillis();
+
+	/**
+	 * @return The average number of guesses of the best tree, or infinity if there is none yet.
+	 */
+	double getBestAverage();
+
+	/**
+	 * @return The number of times the best tree improved.
+	 */
+	long getImprovements();
+}
@@ -0,0 +1,85 @@
+package wordGuesserGenerator;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Plays any number of games at once with one precomputed guess tree.
+ * The engine itself is immutable; each game gets its own {@link GameSession}.
+ *
+ * @author libraun
+ *
+ */
+public final class GuessEngine {
+	/**
+	 * Returned by {@link #childIndex(String)} for the hint that the guess is the word.
+	 */
+	public static final int FOUND = 5;
+	/**
+	 * Returned by {@link #childIndex(String)} for hints which are not understood.
+	 */
+	public static final int UNKNOWN = -1;
+
+	// the computer only uses a handful of different hints, this is just a safety net
+	private static final int MAX_CACHED_HINTS = 1024;
+	private static final ConcurrentHashMap<String, Integer> hintCache = new ConcurrentHashMap<String, Integer>();
+
+	private final CompiledGuessTree tree;
+
+	/**
+	 * @param tree The guess tree to play with.
+	 */
+	public GuessEngine(CompiledGuessTree tree) {
+		this.tree = tree;
+	}
+
+	/**
+	 * Loads the guess tree for an engine.
+	 * @param path The guess tree file, in the binary or the text format.
+	 * @return The engine.
+	 * @throws IOException If the file could not be read or is corrupt.
+	 */
+	public static GuessEngine load(Path path) throws IOException {
+		return new GuessEngine(GuessTreeIO.loadCompiled(path));
+	}
+
+	/**
+	 * @return A new game, starting at the root of the tree.
+	 */
+	public GameSession newSession() {
+		return new GameSession(tree);
+	}
+
+	/**
+	 * @return The guess tree of the engine.
+	 */
+	public CompiledGuessTree getTree() {
+		return tree;
+	}
+
+	/**
+	 * Maps a hint of the computer to the child of the guess it leads to.
+	 * The result for a hint is only computed once.
+	 * @param hint The hint.
+	 * @return The index of the child (see {@link GeneratedGuessNode#getChild(int)}), {@link #FOUND} or {@link #UNKNOWN}.
+	 */
+	public static int childIndex(String hint) {
+		Integer cached = hintCache.get(hint);
+		if (cached != null) return cached;
+		int index = parseHint(hint);
+		if (hintCache.size() < MAX_CACHED_HINTS) hintCache.put(hint, index);
+		return index;
+	}
+
+	// the order of the checks matters, e.g. "beginnt und endet" contains both "beginnt" and "endet"
+	private static int parseHint(String hint) {
+		if (hint.equals("ist")) return FOUND;
+		if (hint.contains("nicht")) return TipTable.NOT_CONT;
+		if (hint.contains("und")) return TipTable.BEG_END;
+		if (hint.contains("beginnt")) return TipTable.BEGIN;
+		if (hint.contains("endet")) return TipTable.END;
+		if (hint.contains("enthält")) return TipTable.ONLY_CONT;
+		return UNKNOWN;
+	}
+}
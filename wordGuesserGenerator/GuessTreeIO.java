@@ -0,0 +1,248 @@
+package wordGuesserGenerator;
+
+import java.io.IOException;
+import java.nio.BufferUnderflowException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.channels.WritableByteChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+
+/**
+ * Reads and writes guess trees in a compact binary format, and reads the legacy text format of alg.txt.
+ * <p>
+ * The binary format consists of (all numbers are big-endian ints unless noted otherwise):
+ * <ul>
+ * <li>the magic number "WGTB" and the format version,</li>
+ * <li>the number of distinct guesses, the number of nodes and the width of an index in bytes (2 or 4),</li>
+ * <li>every distinct guess as its length in bytes followed by its UTF-8 bytes,</li>
+ * <li>every node in pre-order (the root first) as the index of its guess followed by the indices of its five children, -1 if absent.
+ * These indices all have the width given in the header, which is 2 bytes for trees of at most 32767 nodes.</li>
+ * </ul>
+ *
+ * @author libraun
+ *
+ */
+public class GuessTreeIO {
+	/**
+	 * The first four bytes of a binary guess tree file.
+	 */
+	public static final int MAGIC = 0x57475442; // "WGTB"
+	/**
+	 * The current version of the binary format.
+	 */
+	public static final int VERSION = 1;
+
+	private static final int BUFFER_SIZE = 1 << 16;
+
+	/**
+	 * Saves a guess tree. Files ending in .txt are written in the legacy text format, all others in the binary format.
+	 * @param root The root node of the tree.
+	 * @param path The file to write.
+	 * @throws IOException If the file could not be written.
+	 */
+	public static void save(GeneratedGuessNode root, Path path) throws IOException {
+		if (path.toString().endsWith(".txt")) {
+			Files.write(path, root.serializeGuessTree().getBytes(StandardCharsets.UTF_8));
+		} else {
+			try (FileChannel ch = FileChannel.open(path, StandardOpenOption.CREATE, StandardOpenOption.WRITE,
+					StandardOpenOption.TRUNCATE_EXISTING)) {
+				write(root, ch);
+			}
+		}
+	}
+
+	/**
+	 * Writes a guess tree in the binary format.
+	 * @param root The root node of the tree.
+	 * @param ch The channel to write to. It is not closed.
+	 * @throws IOException If writing failed.
+	 */
+	public static void write(GeneratedGuessNode root, WritableByteChannel ch) throws IOException {
+		// number the nodes in pre-order and deduplicate the guesses
+		List<GeneratedGuessNode> nodes = new ArrayList<GeneratedGuessNode>();
+		HashMap<GeneratedGuessNode, Integer> nodeIds = new HashMap<GeneratedGuessNode, Integer>();
+		List<String> guesses = new ArrayList<String>();
+		HashMap<String, Integer> guessIds = new HashMap<String, Integer>();
+		ArrayList<GeneratedGuessNode> stack = new ArrayList<GeneratedGuessNode>();
+		stack.add(root);
+		while (!stack.isEmpty()) {
+			GeneratedGuessNode n = stack.remove(stack.size() - 1);
+			nodeIds.put(n, nodes.size());
+			nodes.add(n);
+			if (!guessIds.containsKey(n.guess)) {
+				guessIds.put(n.guess, guesses.size());
+				guesses.add(n.guess);
+			}
+			for (int i = 4; i >= 0; i--) {
+				if (n.getChild(i) != null) stack.add(n.getChild(i));
+			}
+		}
+
+		int width = (nodes.size() <= Short.MAX_VALUE) ? 2 : 4;
+		ByteBuffer buf = ByteBuffer.allocateDirect(BUFFER_SIZE);
+		buf.putInt(MAGIC).putInt(VERSION).putInt(guesses.size()).putInt(nodes.size()).putInt(width);
+		for (String guess : guesses) {
+			byte[] bytes = guess.getBytes(StandardCharsets.UTF_8);
+			ensureSpace(ch, buf, 4);
+			buf.putInt(bytes.length);
+			for (int off = 0; off < bytes.length; ) {
+				ensureSpace(ch, buf, 1);
+				int len = Math.min(buf.remaining(), bytes.length - off);
+				buf.put(bytes, off, len);
+				off += len;
+			}
+		}
+		for (GeneratedGuessNode n : nodes) {
+			ensureSpace(ch, buf, 6 * width);
+			putIndex(buf, width, guessIds.get(n.guess));
+			for (int i = 0; i < 5; i++) {
+				GeneratedGuessNode child = n.getChild(i);
+				putIndex(buf, width, (child == null) ? -1 : nodeIds.get(child));
+			}
+		}
+		flush(ch, buf);
+	}
+
+	private static void putIndex(ByteBuffer buf, int width, int index) {
+		if (width == 2) {
+			buf.putShort((short) index);
+		} else {
+			buf.putInt(index);
+		}
+	}
+
+	private static int getIndex(ByteBuffer buf, int width) {
+		return (width == 2) ? buf.getShort() : buf.getInt();
+	}
+
+	private static void ensureSpace(WritableByteChannel ch, ByteBuffer buf, int bytes) throws IOException {
+		if (buf.remaining() < bytes) flush(ch, buf);
+	}
+
+	private static void flush(WritableByteChannel ch, ByteBuffer buf) throws IOException {
+		buf.flip();
+		while (buf.hasRemaining()) {
+			ch.write(buf);
+		}
+		buf.clear();
+	}
+
+	/**
+	 * Loads a guess tree, either in the binary format or in the legacy text format.
+	 * Binary files are memory-mapped instead of being read into memory first.
+	 * @param path The file to read.
+	 * @return The root node of the tree.
+	 * @throws IOException If the file could not be read or is corrupt.
+	 */
+	public static GeneratedGuessNode load(Path path) throws IOException {
+		try (FileChannel ch = FileChannel.open(path, StandardOpenOption.READ)) {
+			if (ch.size() >= 4) {
+				MappedByteBuffer buf = ch.map(FileChannel.MapMode.READ_ONLY, 0, ch.size());
+				if (buf.getInt(0) == MAGIC) {
+					return read(buf);
+				}
+			}
+		}
+		List<String> lines = Files.readAllLines(path);
+		return GeneratedGuessNode.deserializeGuessTree(lines.toArray(new String[lines.size()]));
+	}
+
+	/**
+	 * Loads a guess tree for playing, without building node objects for binary files.
+	 * @param path The file to read, either in the binary format or in the legacy text format.
+	 * @return The flattened tree.
+	 * @throws IOException If the file could not be read or is corrupt.
+	 */
+	public static CompiledGuessTree loadCompiled(Path path) throws IOException {
+		try (FileChannel ch = FileChannel.open(path, StandardOpenOption.READ)) {
+			if (ch.size() >= 4) {
+				MappedByteBuffer buf = ch.map(FileChannel.MapMode.READ_ONLY, 0, ch.size());
+				if (buf.getInt(0) == MAGIC) {
+					return readCompiled(buf);
+				}
+			}
+		}
+		return CompiledGuessTree.compile(load(path));
+	}
+
+	/**
+	 * Reads a guess tree in the binary format.
+	 * @param buf The buffer positioned at the start of the tree. Afterwards, it is positioned after the tree.
+	 * @return The root node of the tree.
+	 * @throws IOException If the data is corrupt or has an unsupported version.
+	 */
+	public static GeneratedGuessNode read(ByteBuffer buf) throws IOException {
+		CompiledGuessTree tree = readCompiled(buf);
+		GeneratedGuessNode[] nodes = new GeneratedGuessNode[tree.size()];
+		// link bottom-up, so that no node has a parent yet when its children are set
+		for (int i = nodes.length - 1; i >= 0; i--) {
+			nodes[i] = new GeneratedGuessNode(tree.guess(i));
+			for (int c = 0; c < 5; c++) {
+				int child = tree.child(i, c);
+				if (child != CompiledGuessTree.NONE) nodes[i].setNthChild(c, nodes[child]);
+			}
+		}
+		return nodes[0];
+	}
+
+	/**
+	 * Reads a guess tree in the binary format as a flattened tree.
+	 * The node ids of the flattened tree are the indices of the nodes in the file.
+	 * @param buf The buffer positioned at the start of the tree. Afterwards, it is positioned after the tree.
+	 * @return The flattened tree.
+	 * @throws IOException If the data is corrupt or has an unsupported version.
+	 */
+	public static CompiledGuessTree readCompiled(ByteBuffer buf) throws IOException {
+		try {
+			if (buf.getInt() != MAGIC) throw new IOException("Not a guess tree file");
+			int version = buf.getInt();
+			if (version < 1 || version > VERSION) throw new IOException("Unsupported guess tree version " + version);
+			String[] guesses = new String[buf.getInt()];
+			String[] nodeGuesses = new String[buf.getInt()];
+			int width = buf.getInt();
+			if (nodeGuesses.length == 0) throw new IOException("Guess tree file contains no nodes");
+			if (width != 2 && width != 4) throw new IOException("Corrupt guess tree file");
+			for (int i = 0; i < guesses.length; i++) {
+				byte[] bytes = new byte[buf.getInt()];
+				buf.get(bytes);
+				guesses[i] = new String(bytes, StandardCharsets.UTF_8);
+			}
+			int[] childIds = new int[nodeGuesses.length * 5];
+			for (int i = 0; i < nodeGuesses.length; i++) {
+				nodeGuesses[i] = guesses[getIndex(buf, width)];
+				for (int c = 0; c < 5; c++) {
+					childIds[i * 5 + c] = getIndex(buf, width);
+				}
+			}
+			return new CompiledGuessTree(nodeGuesses, childIds);
+		} catch (BufferUnderflowException | IndexOutOfBoundsException | NegativeArraySizeException
+				| IllegalArgumentException e) {
+			throw new IOException("Corrupt guess tree file", e);
+		}
+	}
+
+	/**
+	 * Converts a guess tree file between the text and the binary format.
+	 * @param args The input file and the output file; the format of the output is chosen by its extension.
+	 */
+	public static void main(String[] args) {
+		if (args.length != 2) {
+			System.err.println("Usage: java wordGuesserGenerator.GuessTreeIO <input file> <output file>");
+			System.exit(2);
+		}
+		try {
+			save(load(Paths.get(args[0])), Paths.get(args[1]));
+		} catch (IOException e) {
+			e.printStackTrace();
+			System.exit(1);
+		}
+	}
+}
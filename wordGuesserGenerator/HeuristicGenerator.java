@@ -1,7 +1,15 @@
 package wordGuesserGenerator;
 
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
 import java.util.HashSet;
 import java.util.Random;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinTask;
+import java.util.concurrent.RecursiveTask;
+import java.util.concurrent.atomic.AtomicBoolean;
 
 /**
  * A class for generating guesses for the word guessing game heuristically.
@@ -11,56 +19,79 @@ import java.util.Random;
  */
 public class HeuristicGenerator {
 	private String[] words;
-	// Speeds up heuristic by precomputing useful guesses.
+	// Speeds up heuristic by precomputing useful guesses and how they partition the words.
+	private TipTable table;
 	private String[] usefulTips;
+	private ExactSolver exact;
+	private SubtreeMemo memo;
+	private WordWeights weights;
+	// the weight of each word, null without weights
+	private double[] wordWeights;
+	private AtomicBoolean abortFlag = null;
 	
-	private Random r = new Random();
+	private Random r;
 	
 	/**
 	 * Constructs the generator with a word list.
 	 * @param words The word list to use.
 	 */
 	public HeuristicGenerator(String[] words) {
-		this.words = words;
-		generateUsefulTips();
-	}
-	
-	// Hacky support for ä,ö,ü.
-	private String transChar(char c) {
-	    switch (c) {
-	        case 'z' + 1:
-	            return "ä";
-	        case 'z' + 2:
-	            return "ö";
-	        case 'z' + 3:
-	            return "ü";
-	        case 'z' + 4:
-	            return "";
-	        default:
-	            return "" + c;
-	    }
+		this(words, new Random().nextLong());
+	}
+	
+	/**
+	 * Constructs the generator with a word list.
+	 * @param words The word list to use.
+	 * @param seed The seed for the random decisions of the heuristic.
+	 */
+	public HeuristicGenerator(String[] words, long seed) {
+		this(words, seed, TipTable.DEFAULT_MAX_TIP_LENGTH);
+	}
+	
+	/**
+	 * Constructs the generator with a word list.
+	 * @param words The word list to use.
+	 * @param seed The seed for the random decisions of the heuristic.
+	 * @param maxTipLength The maximum length of the tips to consider, in code points.
+	 */
+	public HeuristicGenerator(String[] words, long seed, int maxTipLength) {
+		this(words, seed, maxTipLength, null);
+	}
+	
+	/**
+	 * Constructs the generator with a word list whose words are drawn with different frequencies.
+	 * The partitions of a guess are then balanced by the weight of their words instead of their number.
+	 * @param words The word list to use.
+	 * @param seed The seed for the random decisions of the heuristic.
+	 * @param maxTipLength The maximum length of the tips to consider, in code points.
+	 * @param weights The weights of the words, or null to weigh them the same.
+	 */
+	public HeuristicGenerator(String[] words, long seed, int maxTipLength, WordWeights weights) {
+		r = new Random(seed);
+		table = TipTable.forWords(words, maxTipLength);
+		this.words = table.words;
+		usefulTips = table.tips;
+		this.weights = weights;
+		wordWeights = (weights == null) ? null : weights.weightsOf(this.words);
+		exact = ExactSolver.forTable(table, weights);
+		memo = SubtreeMemo.forTable(table, weights);
+	}
+	
+	/**
+	 * Lets generation be aborted from another thread. While the flag is set, generating throws a {@link CancellationException}
+	 * before creating the next node.
+	 * @param flag The flag, or null to never abort.
+	 */
+	public void setAbortFlag(AtomicBoolean flag) {
+		abortFlag = flag;
 	}
 	
-	private void generateUsefulTips() {
-		// temporarily using HashSets because .contains can be done in log(n) time.
-		HashSet<String> tmp = new HashSet<String>();
-		for (char c1 = 'a'; c1 <= 'z' + 3; c1++) {
-			for (char c2 = 'a'; c2 <= 'z' + 4; c2++) {
-				for (char c3 = 'a'; c3 <= 'z' + 4; c3++) {
-		            String tip = transChar(c1) + transChar(c2) + transChar(c3);
-		            if (tmp.contains(tip)) continue;
-		            int count = 0;
-		            for (String w : words) {
-		                if (w.contains(tip)) count++;
-		            }
-		            if (tip.length() == 3 && count <= 1) continue;
-		            if (count > 1) {
-		            	tmp.add(tip);
-		            }
-		        }
-		    }
-		}
-		usefulTips = (String[]) tmp.toArray(new String[tmp.size()]);
+	/**
+	 * Lets this generator use its own memo of subtrees instead of the one shared by all generators for the word list.
+	 * Its trees then only depend on its seed and not on what other generators did before.
+	 */
+	public void usePrivateMemo() {
+		memo = SubtreeMemo.create(table, weights);
 	}
 	
 	/**
@@ -70,14 +101,96 @@ public class HeuristicGenerator {
 	 * @return The root node of the resulting guess tree.
 	 */
 	public GeneratedGuessNode generateForWordList(HashSet<String> words, HeuristicParams params) {
-		String bestGuess = heuristicForWordList(words, params);
+		return generateForIndices(indicesOf(words), params);
+	}
+
+	/**
+	 * Generate a guess tree heuristically.
+	 * @param idx The indices of the words to base the guess tree upon.
+	 * @param params The parameters for the heuristic guesser.
+	 * @return The root node of the resulting guess tree.
+	 */
+	public GeneratedGuessNode generateForIndices(int[] idx, HeuristicParams params) {
+		if (isParallel(idx, params)) {
+			return ForkJoinPool.commonPool().invoke(new BuildTask(idx, params, new Random(r.nextLong())));
+		}
+		return generate(idx, params, r);
+	}
+	
+	private static boolean isParallel(int[] idx, HeuristicParams params) {
+		return params.parallelCutoff > 0 && idx.length >= params.parallelCutoff;
+	}
+	
+	// Builds a subtree in the fork/join pool. Each task has its own random generator,
+	// seeded by its parent in a fixed order, so the result doesn't depend on the scheduling.
+	private class BuildTask extends RecursiveTask<GeneratedGuessNode> {
+		private static final long serialVersionUID = 1L;
+		
+		private final int[] idx;
+		private final HeuristicParams params;
+		private final Random rnd;
+		
+		BuildTask(int[] idx, HeuristicParams params, Random rnd) {
+			this.idx = idx;
+			this.params = params;
+			this.rnd = rnd;
+		}
 		
+		@Override
+		protected GeneratedGuessNode compute() {
+			return generate(idx, params, rnd);
+		}
+	}
+	
+	private GeneratedGuessNode generate(int[] idx, HeuristicParams params, Random rnd) {
+		if (idx.length <= Math.min(params.exactSolveThreshold, ExactSolver.MAX_WORDS)) {
+			return exact.solve(idx);
+		}
+		if (params.memoMinWords <= 0 || idx.length < params.memoMinWords) {
+			return build(idx, params, rnd);
+		}
+		int[] sorted = SubsetTable.canonical(idx);
+		int bucket = SubtreeMemo.bucket(params);
+		if (rnd.nextDouble() < params.memoReuseProb) {
+			GeneratedGuessNode known = memo.get(sorted, bucket);
+			if (known != null) return known;
+		}
+		GeneratedGuessNode node = build(idx, params, rnd);
+		memo.offer(sorted, bucket, node);
+		return node;
+	}
+	
+	// generates a node heuristically and its children recursively
+	private GeneratedGuessNode build(int[] idx, HeuristicParams params, Random rnd) {
+		if (abortFlag != null && abortFlag.get()) throw new CancellationException("Generation aborted");
+		int choice = heuristicForIndices(idx, params, rnd);
+		
+		String bestGuess = (choice >= 0) ? usefulTips[choice] : words[-choice - 1];
 		GeneratedGuessNode node = new GeneratedGuessNode(bestGuess);
+		node.setWords(words, idx);
 		
-		HashSet<String>[] partition = computePartitions(words, bestGuess);
+		int[][] partition = (choice >= 0) ? partitionByTip(idx, choice) : computePartitions(idx, bestGuess);
+		if (isParallel(idx, params)) {
+			// only reached inside the pool, see generateForIndices
+			BuildTask[] tasks = new BuildTask[partition.length];
+			ArrayList<BuildTask> forked = new ArrayList<BuildTask>();
+			for (int i = 0; i < partition.length; i++) {
+				if (partition[i].length > 0) {
+					tasks[i] = new BuildTask(partition[i], params, new Random(rnd.nextLong()));
+					forked.add(tasks[i]);
+				}
+			}
+			ForkJoinTask.invokeAll(forked);
+			for (int i = 0; i < tasks.length; i++) {
+				if (tasks[i] != null) {
+					node.setNthChild(i, tasks[i].join());
+				}
+			}
+			return node;
+		}
 		for (int i = 0; i < partition.length; i++) {
-			if (partition[i].size() > 0) {
-				GeneratedGuessNode child = generateForWordList(partition[i], params);
+			if (partition[i].length > 0) {
+				GeneratedGuessNode child = generate(partition[i], params, rnd);
 				node.setNthChild(i, child);
 			}
 		}
@@ -85,6 +198,36 @@ public class HeuristicGenerator {
 		return node;
 	}
 
+	/**
+	 * @return The word list of this generator, which word indices refer to.
+	 */
+	String[] wordList() {
+		return words;
+	}
+	
+	/**
+	 * @param word A word.
+	 * @return The index of the word in the word list of this generator, or -1 if it isn't in the list.
+	 */
+	int indexOfWord(String word) {
+		return table.indexOfWord(word);
+	}
+
+	/**
+	 * Translates words into their indices in the word list of this generator.
+	 * @param words The words to translate.
+	 * @return The indices of the words. Words which are not in the word list are left out.
+	 */
+	public int[] indicesOf(Collection<String> words) {
+		int[] idx = new int[words.size()];
+		int n = 0;
+		for (String w : words) {
+			int i = table.indexOfWord(w);
+			if (i >= 0) idx[n++] = i;
+		}
+		return (n == idx.length) ? idx : Arrays.copyOf(idx, n);
+	}
+
 	/**
 	 * Compute the partitioning of a certain guess on a word list.
 	 * @param words The list of words to use.
@@ -97,108 +240,190 @@ public class HeuristicGenerator {
 		for (int i = 0; i < 5; i++) parts[i] = new HashSet<String>();
 	    for (String w : words) {
 	        if (w == guess) continue;
-	        if (w.contains(guess)) {
-	            if (!w.startsWith(guess) && !w.endsWith(guess)) {
-	            	parts[1].add(w);
-	            } else {
-	                if (w.startsWith(guess)) {
-	                    if (w.startsWith(guess) && w.endsWith(guess)) {
-	                    	parts[4].add(w);
-	                    } else {
-	                    	parts[2].add(w);
-	                    }
-	                } else {
-	                	parts[3].add(w);
-	                }
-	            }
-	        } else {
-	        	parts[0].add(w);
-	        }
+	        parts[TipTable.classify(w, guess)].add(w);
 	    }
 	    return parts;
 	}
 
-	private String heuristicForWordList(HashSet<String> words, HeuristicParams params) {
+	/**
+	 * Compute the partitioning of a certain guess on a list of word indices.
+	 * The word equal to the guess (if any) is found at the node and is not part of any partition.
+	 * @param idx The indices of the words to use.
+	 * @param guess The guess to use.
+	 * @return The resulting partitioning.
+	 */
+	public int[][] computePartitions(int[] idx, String guess) {
+		int tip = table.indexOfTip(guess);
+		if (tip >= 0) {
+			return partitionByTip(idx, tip);
+		}
+		byte[] codes = new byte[idx.length];
+		for (int j = 0; j < idx.length; j++) {
+			codes[j] = TipTable.classify(words[idx[j]], guess);
+		}
+		return partition(idx, codes, table.indexOfWord(guess));
+	}
+
+	private int[][] partitionByTip(int[] idx, int tip) {
+		byte[] row = table.classes[tip];
+		byte[] codes = new byte[idx.length];
+		for (int j = 0; j < idx.length; j++) {
+			codes[j] = row[idx[j]];
+		}
+		return partition(idx, codes, table.tipWord[tip]);
+	}
+
+	// splits idx by the partition code of each entry, leaving out the word that was guessed
+	private static int[][] partition(int[] idx, byte[] codes, int guessWord) {
+		int[] sizes = new int[5];
+		for (int j = 0; j < idx.length; j++) {
+			if (idx[j] != guessWord) sizes[codes[j]]++;
+		}
+		int[][] parts = new int[5][];
+		for (int i = 0; i < 5; i++) parts[i] = new int[sizes[i]];
+		Arrays.fill(sizes, 0);
+		for (int j = 0; j < idx.length; j++) {
+			if (idx[j] == guessWord) continue;
+			int c = codes[j];
+			parts[c][sizes[c]++] = idx[j];
+		}
+		return parts;
+	}
+
+	// Returns the index of the best tip, or -(index + 1) of the word to guess directly.
+	// Package-private for the benchmarks.
+	int heuristicForIndices(int[] idx, HeuristicParams params, Random rnd) {
 		double[] meanGoals = params.defaultGoalWeights;
-		if (r.nextDouble() > params.useDefaultGoalWeightsProb) {
-			meanGoals = new double[] {r.nextDouble(), r.nextDouble(), r.nextDouble(), r.nextDouble(), r.nextDouble()};
+		if (rnd.nextDouble() > params.useDefaultGoalWeightsProb) {
+			meanGoals = new double[] {rnd.nextDouble(), rnd.nextDouble(), rnd.nextDouble(), rnd.nextDouble(), rnd.nextDouble()};
+		}
+		if (idx.length <= 3) {
+			// just use the first (heaviest) word
+			return -heaviest(idx) - 1;
+		}
+		TipScore best;
+		if (params.parallelScoringMinWords > 0 && idx.length >= params.parallelScoringMinWords) {
+			int chunkSize = Math.max(64, usefulTips.length / (4 * ForkJoinPool.getCommonPoolParallelism()));
+			best = ForkJoinPool.commonPool().invoke(new ScoreTask(idx, 0, usefulTips.length, chunkSize, meanGoals, params));
+		} else {
+			best = scoreTips(idx, 0, usefulTips.length, meanGoals, params);
 		}
-		if (words.size() <= 3) {
-			// just use first word
-			return words.iterator().next();
+		if (best.worstReduction > 0.95) { // something went wrong (e.g. duplicate words in list)
+			return -heaviest(idx) - 1;
 		}
-		String bestTip = "";
-		double bestTipWorstRed = 1;
-		double bestTipDiffSum = Double.POSITIVE_INFINITY;
+		return best.tip;
+	}
+	
+	// the word that is drawn most often, the first one without weights
+	private int heaviest(int[] idx) {
+		int best = idx[0];
+		if (wordWeights == null) return best;
+		for (int w : idx) {
+			if (wordWeights[w] > wordWeights[best]) best = w;
+		}
+		return best;
+	}
+	
+	// The best tip of a range of tips.
+	private static class TipScore {
+		int tip = -1;
+		double worstReduction = 1;
+		double diffSum = Double.POSITIVE_INFINITY;
+		// if the tip was picked because enough partitions contain one word, which ends the search
+		boolean stopsSearch = false;
+		
+		// combines the results of two adjacent ranges the same way as scanning them one after another
+		static TipScore combine(TipScore first, TipScore second) {
+			if (first.stopsSearch) return first;
+			if (second.stopsSearch || second.diffSum < first.diffSum) return second;
+			return first;
+		}
+	}
+	
+	// Scores a range of tips in parallel by splitting it into halves.
+	private class ScoreTask extends RecursiveTask<TipScore> {
+		private static final long serialVersionUID = 1L;
+		
+		private final int[] idx;
+		private final int from, to, chunkSize;
+		private final double[] meanGoals;
+		private final HeuristicParams params;
+		
+		ScoreTask(int[] idx, int from, int to, int chunkSize, double[] meanGoals, HeuristicParams params) {
+			this.idx = idx;
+			this.from = from;
+			this.to = to;
+			this.chunkSize = chunkSize;
+			this.meanGoals = meanGoals;
+			this.params = params;
+		}
+		
+		@Override
+		protected TipScore compute() {
+			if (to - from <= chunkSize) {
+				return scoreTips(idx, from, to, meanGoals, params);
+			}
+			int mid = (from + to) >>> 1;
+			ScoreTask second = new ScoreTask(idx, mid, to, chunkSize, meanGoals, params);
+			second.fork();
+			TipScore first = new ScoreTask(idx, from, mid, chunkSize, meanGoals, params).compute();
+			return TipScore.combine(first, second.join());
+		}
+	}
+	
+	private TipScore scoreTips(int[] idx, int from, int to, double[] meanGoals, HeuristicParams params) {
+		TipScore best = new TipScore();
 
-		int countTotal = words.size();
-		for (String tip : usefulTips) {
-			int countDoesntContain = 0;
-    		int countOnlyCont = 0;
-    		int countBegins = 0;
-    		int countEnds = 0;
-    		int countBeginsAndEnds = 0;
-    		for (String w : words) {
-    			if (w.contains(tip)) {
-    				if (!w.startsWith(tip) && !w.endsWith(tip)) {
-    					countOnlyCont++;
-    				} else {
-            			if (w.startsWith(tip)) {
-            				if (w.startsWith(tip) && w.endsWith(tip)) {
-                				countBeginsAndEnds++;
-                			} else {
-                				countBegins++;
-                			}
-            			} else {
-            				countEnds++;
-            			}
-    				}
-    			} else {
-    				countDoesntContain++;
-    			}
-    		}
+		int countTotal = idx.length;
+		int[] counts = new int[5];
+		// with weights, the partitions are compared by their share of the total weight
+		double[] mass = null;
+		double massTotal = 0;
+		if (wordWeights != null) {
+			mass = new double[5];
+			for (int w : idx) {
+				massTotal += wordWeights[w];
+			}
+		}
+		for (int t = from; t < to; t++) {
+			// histogram of the precomputed partition codes
+			byte[] row = table.classes[t];
+			Arrays.fill(counts, 0);
+			for (int w : idx) {
+				counts[row[w]]++;
+			}
+			if (mass != null) {
+				Arrays.fill(mass, 0);
+				for (int w : idx) {
+					mass[row[w]] += wordWeights[w];
+				}
+			}
 
             int countOnes = 0;
-            if (countDoesntContain == 1) countOnes++;
-            if (countOnlyCont == 1) countOnes++;
-            if (countBegins == 1) countOnes++;
-            if (countEnds == 1) countOnes++;
-            if (countBeginsAndEnds == 1) countOnes++;
-            
-    		double ratioNotCont = (double) countDoesntContain / countTotal;
-    		double ratioCont = (double) countOnlyCont / countTotal;
-    		double ratioBegins = (double) countBegins / countTotal;
-    		double ratioEnds = (double) countEnds / countTotal;
-    		double ratioBeginsAndEnds = (double) countBeginsAndEnds / countTotal;
-    		
-    		// worst outcome (percentage of how much remains)
-    		double worstReduction = Math.max(
-				Math.max(ratioNotCont, ratioCont),
-				Math.max(Math.max(ratioBegins, ratioEnds), ratioBeginsAndEnds)
-			);
-    		
-    		double[] ratios = new double[] {ratioNotCont, ratioCont, ratioBegins, ratioEnds, ratioBeginsAndEnds};
+            double worstReduction = 0;
+            double reductionSum = 0;
+            for (int i = 0; i < counts.length; i++) {
+            	if (counts[i] == 1) countOnes++;
+            	double ratio = (double) counts[i] / countTotal;
+            	// worst outcome (percentage of how much remains)
+            	worstReduction = Math.max(worstReduction, ratio);
+            	if (mass != null) ratio = mass[i] / massTotal;
+            	reductionSum += (ratio - meanGoals[i]) * (ratio - meanGoals[i]);
+            }
 
-    		if ((countOnes >= 3 && words.size() < params.countOnesThreshold)) {
-    			bestTipWorstRed = worstReduction;
-    			bestTip = tip;
+    		if ((countOnes >= 3 && idx.length < params.countOnesThreshold)) {
+    			best.worstReduction = worstReduction;
+    			best.tip = t;
+    			best.stopsSearch = true;
     			break;
     		}
     		
-    		double reductionSum = 0;
-    		for (int i = 0; i < ratios.length; i++) {
-    			reductionSum += (ratios[i] - meanGoals[i]) * (ratios[i] - meanGoals[i]);
-    		}
-    		
-    		if (reductionSum < bestTipDiffSum) {
-    			bestTipWorstRed = worstReduction;
-    			bestTipDiffSum = reductionSum;
-    			bestTip = tip;
+    		if (reductionSum < best.diffSum) {
+    			best.worstReduction = worstReduction;
+    			best.diffSum = reductionSum;
+    			best.tip = t;
         	}
 		}
-		if (bestTipWorstRed > 0.95) { // something went wrong (e.g. duplicate words in list)
-			return words.iterator().next();
-		}
-		return bestTip;
+		return best;
 	}
 }
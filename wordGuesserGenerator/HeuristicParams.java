@@ -21,4 +21,31 @@ public class HeuristicParams {
 	 * If at least three partitions contain exactly one word, what the maximum number of words is to use that guess instead.
 	 */
 	public int countOnesThreshold = 5;
+	
+	/**
+	 * Up to how many words the guess tree should be searched exactly instead of heuristically (at most 20, 0 disables it).
+	 */
+	public int exactSolveThreshold = 8;
+	
+	/**
+	 * From how many words on the child nodes should be generated in parallel on the fork/join pool (0 disables it).
+	 */
+	public int parallelCutoff = 0;
+	
+	/**
+	 * From how many words on the useful tips should be scored in parallel on the fork/join pool (0 disables it).
+	 * The chosen tip is the same as when scoring them one after another.
+	 */
+	public int parallelScoringMinWords = 0;
+	
+	/**
+	 * From how many words on subtrees should be looked up in and stored into the shared {@link SubtreeMemo} (0 disables it).
+	 */
+	public int memoMinWords = 32;
+	
+	/**
+	 * With what probability a subtree found in the memo is reused. Otherwise, the subtree is generated again,
+	 * which keeps the heuristic exploring, and replaces the remembered one if it is better.
+	 */
+	public double memoReuseProb = 0.5;
 }
@@ -0,0 +1,29 @@
+package wordGuesserGenerator;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+
+/**
+ * JFR event for a new best tree of a generator, which gives the best average over time.
+ *
+ * @author libraun
+ *
+ */
+@Name("wordGuesserGenerator.Improvement")
+@Label("Improvement")
+@Category("Word Guesser")
+@Description("A generator found a better guess tree")
+class ImprovementEvent extends Event {
+	@Label("Island")
+	int island;
+
+	@Label("Average")
+	double average;
+
+	@Label("Source")
+	@Description("How the tree was found: pre-phase, mutation, migration or checkpoint")
+	String source;
+}
@@ -0,0 +1,229 @@
+package wordGuesserGenerator;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.ObjectInputFilter;
+import java.io.ObjectInputStream;
+import java.io.ObjectOutputStream;
+import java.nio.BufferUnderflowException;
+import java.nio.ByteBuffer;
+import java.nio.channels.Channels;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.util.Random;
+
+/**
+ * The state of one generator thread (island), so that a long run can be resumed after a restart.
+ * <p>
+ * A checkpoint file {@code island-<n>.ckpt} consists of (all numbers are big-endian):
+ * <ul>
+ * <li>the magic number "WGCP" and the format version,</li>
+ * <li>the fingerprint of the word list (see {@link TreeCache#fingerprint(String[])}) as length and UTF-8 bytes,</li>
+ * <li>the number of mutations tried, the number of initial trees generated and the average of the best tree (a double),</li>
+ * <li>the serialized random generator as length and bytes,</li>
+ * <li>the kind of acceptance policy as length and UTF-8 bytes and its state (see {@link AcceptancePolicy#getState()})
+ * as number of doubles and the doubles (since version 2),</li>
+ * <li>the best tree in the binary format of {@link GuessTreeIO}, followed by a flag (a byte) whether the tree which
+ * is mutated is a different one, and if so that tree.</li>
+ * </ul>
+ * Checkpoints are written to a temporary file first and then moved into place, so a crash never leaves a partial checkpoint.
+ *
+ * @author libraun
+ *
+ */
+public class IslandCheckpoint {
+	/**
+	 * The first four bytes of a checkpoint file.
+	 */
+	public static final int MAGIC = 0x57474350; // "WGCP"
+	/**
+	 * The current version of the checkpoint format.
+	 */
+	public static final int VERSION = 2;
+
+	/**
+	 * The fingerprint of the word list the trees were generated for.
+	 */
+	public final String wordListFingerprint;
+	/**
+	 * The number of mutations tried.
+	 */
+	public final long iterations;
+	/**
+	 * The number of initial trees generated.
+	 */
+	public final int prePhaseIterations;
+	/**
+	 * The average number of guesses of the best tree.
+	 */
+	public final double bestAvg;
+	/**
+	 * The random generator of the island, in the state after the last completed step.
+	 */
+	public final Random random;
+	/**
+	 * The kind of acceptance policy of the island (its class name), or null if the checkpoint has no policy state.
+	 */
+	public final String policyName;
+	/**
+	 * The state of the acceptance policy, or null if the checkpoint has none.
+	 */
+	public final double[] policyState;
+	/**
+	 * The best tree.
+	 */
+	public final GeneratedGuessNode best;
+	/**
+	 * The tree which is mutated, or null if it is the best tree.
+	 */
+	public final GeneratedGuessNode current;
+
+	/**
+	 * Constructs a checkpoint. The trees and the random generator are not copied, so it must be saved before they change.
+	 * @param wordListFingerprint The fingerprint of the word list.
+	 * @param iterations The number of mutations tried.
+	 * @param prePhaseIterations The number of initial trees generated.
+	 * @param bestAvg The average number of guesses of the best tree.
+	 * @param random The random generator of the island.
+	 * @param policyName The kind of acceptance policy, or null if there is no policy state.
+	 * @param policyState The state of the acceptance policy, or null if there is none.
+	 * @param best The best tree.
+	 * @param current The tree which is mutated, or null if it is the best tree.
+	 */
+	public IslandCheckpoint(String wordListFingerprint, long iterations, int prePhaseIterations, double bestAvg,
+			Random random, String policyName, double[] policyState, GeneratedGuessNode best, GeneratedGuessNode current) {
+		this.wordListFingerprint = wordListFingerprint;
+		this.iterations = iterations;
+		this.prePhaseIterations = prePhaseIterations;
+		this.bestAvg = bestAvg;
+		this.random = random;
+		this.policyName = policyName;
+		this.policyState = policyState;
+		this.best = best;
+		this.current = current;
+	}
+
+	/**
+	 * @param directory The checkpoint directory.
+	 * @param island The index of the island.
+	 * @return The checkpoint file of the island.
+	 */
+	public static Path fileFor(Path directory, int island) {
+		return directory.resolve("island-" + island + ".ckpt");
+	}
+
+	/**
+	 * Writes the checkpoint atomically, replacing the previous checkpoint of the island.
+	 * @param directory The checkpoint directory. It is created if necessary.
+	 * @param island The index of the island.
+	 * @throws IOException If the checkpoint could not be written. The previous checkpoint is left intact.
+	 */
+	public void save(Path directory, int island) throws IOException {
+		ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+		DataOutputStream out = new DataOutputStream(bytes);
+		out.writeInt(MAGIC);
+		out.writeInt(VERSION);
+		byte[] fp = wordListFingerprint.getBytes(StandardCharsets.UTF_8);
+		out.writeInt(fp.length);
+		out.write(fp);
+		out.writeLong(iterations);
+		out.writeInt(prePhaseIterations);
+		out.writeDouble(bestAvg);
+		byte[] rnd = serialize(random);
+		out.writeInt(rnd.length);
+		out.write(rnd);
+		byte[] name = ((policyName != null) ? policyName : "").getBytes(StandardCharsets.UTF_8);
+		out.writeInt(name.length);
+		out.write(name);
+		double[] state = (policyState != null) ? policyState : new double[0];
+		out.writeInt(state.length);
+		for (double d : state) {
+			out.writeDouble(d);
+		}
+		out.flush();
+		GuessTreeIO.write(best, Channels.newChannel(bytes));
+		bytes.write((current != null) ? 1 : 0);
+		if (current != null) {
+			GuessTreeIO.write(current, Channels.newChannel(bytes));
+		}
+
+		Files.createDirectories(directory);
+		Path file = fileFor(directory, island);
+		Path tmp = Files.createTempFile(directory, file.getFileName().toString(), ".tmp");
+		try {
+			Files.write(tmp, bytes.toByteArray());
+			Files.move(tmp, file, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+		} finally {
+			Files.deleteIfExists(tmp);
+		}
+	}
+
+	/**
+	 * Reads the checkpoint of an island.
+	 * @param directory The checkpoint directory.
+	 * @param island The index of the island.
+	 * @return The checkpoint, or null if the island has none.
+	 * @throws IOException If the checkpoint could not be read or is corrupt.
+	 */
+	public static IslandCheckpoint load(Path directory, int island) throws IOException {
+		Path file = fileFor(directory, island);
+		if (!Files.isRegularFile(file)) return null;
+		ByteBuffer buf = ByteBuffer.wrap(Files.readAllBytes(file));
+		try {
+			if (buf.getInt() != MAGIC) throw new IOException("Not a checkpoint file: " + file);
+			int version = buf.getInt();
+			if (version < 1 || version > VERSION) throw new IOException("Unsupported checkpoint version " + version);
+			byte[] fp = new byte[buf.getInt()];
+			buf.get(fp);
+			long iterations = buf.getLong();
+			int prePhaseIterations = buf.getInt();
+			double bestAvg = buf.getDouble();
+			byte[] rnd = new byte[buf.getInt()];
+			buf.get(rnd);
+			String policyName = null;
+			double[] policyState = null;
+			if (version >= 2) {
+				byte[] name = new byte[buf.getInt()];
+				buf.get(name);
+				policyName = new String(name, StandardCharsets.UTF_8);
+				int count = buf.getInt();
+				if (count < 0 || count > buf.remaining() / 8) throw new IOException("Corrupt checkpoint file: " + file);
+				policyState = new double[count];
+				for (int i = 0; i < policyState.length; i++) {
+					policyState[i] = buf.getDouble();
+				}
+			}
+			GeneratedGuessNode best = GuessTreeIO.read(buf);
+			GeneratedGuessNode current = (buf.get() != 0) ? GuessTreeIO.read(buf) : null;
+			return new IslandCheckpoint(new String(fp, StandardCharsets.UTF_8), iterations, prePhaseIterations, bestAvg,
+					deserialize(rnd), policyName, policyState, best, current);
+		} catch (BufferUnderflowException | IndexOutOfBoundsException | NegativeArraySizeException e) {
+			throw new IOException("Corrupt checkpoint file: " + file, e);
+		}
+	}
+
+	// java.util.Random doesn't expose its state, but it is serializable
+	private static byte[] serialize(Random random) throws IOException {
+		ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+		try (ObjectOutputStream out = new ObjectOutputStream(bytes)) {
+			out.writeObject(random);
+		}
+		return bytes.toByteArray();
+	}
+
+	private static Random deserialize(byte[] bytes) throws IOException {
+		try (ObjectInputStream in = new ObjectInputStream(new ByteArrayInputStream(bytes))) {
+			// a checkpoint must not be able to create any other objects
+			in.setObjectInputFilter(ObjectInputFilter.Config.createFilter("java.util.Random;!*"));
+			Object o = in.readObject();
+			if (!(o instanceof Random)) throw new IOException("Corrupt checkpoint: no random generator");
+			return (Random) o;
+		} catch (ClassNotFoundException e) {
+			throw new IOException("Corrupt checkpoint: no random generator", e);
+		}
+	}
+}
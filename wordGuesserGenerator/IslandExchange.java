@@ -0,0 +1,242 @@
+package wordGuesserGenerator;
+
+import java.util.ArrayList;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+
+/**
+ * Lets generator threads ("islands") exchange their best guess trees without locking.
+ * Islands publish improvements into a shared best slot and periodically adopt it if it is better than their own tree.
+ * Each island also has an inbox, through which a tree can be sent to it directly, e.g. to restart it from the tree
+ * of another island (see {@link GeneratorInterface#sendBestTo(int)}).
+ * <p>
+ * In synchronous mode, islands instead exchange their trees in rounds with {@link #offer(int, GeneratedGuessNode, double, Runnable)},
+ * so which tree an island adopts doesn't depend on how fast the other islands are.
+ *
+ * @author libraun
+ *
+ */
+public class IslandExchange {
+
+	/**
+	 * A guess tree that was handed to the exchange. The tree itself is never changed.
+	 */
+	public static class Migrant {
+		private final GeneratedGuessNode tree;
+		/**
+		 * The average number of guesses of the tree.
+		 */
+		public final double avg;
+		/**
+		 * The island the tree comes from, or -1 if it doesn't come from an island.
+		 */
+		public final int island;
+
+		/**
+		 * @param tree The tree, which is copied.
+		 * @param avg The average number of guesses of the tree.
+		 * @param island The island the tree comes from, or -1.
+		 */
+		public Migrant(GeneratedGuessNode tree, double avg, int island) {
+			this.tree = tree.clone();
+			this.avg = avg;
+			this.island = island;
+		}
+
+		/**
+		 * @return A copy of the tree, which can be changed freely.
+		 */
+		public GeneratedGuessNode copyTree() {
+			return tree.clone();
+		}
+	}
+
+	private final AtomicReference<Migrant> best = new AtomicReference<Migrant>();
+	private final AtomicReferenceArray<Migrant> inboxes;
+	private final int migrationInterval;
+
+	// only in synchronous mode: the islands which haven't left, the trees offered in the current round,
+	// the islands waiting for it to complete, and the result of the last completed round
+	private final boolean synchronous;
+	private int parties;
+	private final Migrant[] offers;
+	private final boolean[] arrived;
+	private int arrivedCount = 0;
+	private long round = 0;
+	private final ArrayList<Runnable> waiting = new ArrayList<Runnable>();
+	private Migrant lastResult = null;
+
+	/**
+	 * Constructs an exchange.
+	 * @param islands The number of islands.
+	 * @param migrationInterval After how many mutations an island exchanges trees (0 disables it).
+	 */
+	public IslandExchange(int islands, int migrationInterval) {
+		this(islands, migrationInterval, false);
+	}
+
+	/**
+	 * Constructs an exchange.
+	 * @param islands The number of islands.
+	 * @param migrationInterval After how many mutations an island exchanges trees (0 disables it).
+	 * @param synchronous If the islands exchange their trees in rounds, see {@link #offer(int, GeneratedGuessNode, double, Runnable)}.
+	 */
+	public IslandExchange(int islands, int migrationInterval, boolean synchronous) {
+		inboxes = new AtomicReferenceArray<Migrant>(islands);
+		this.migrationInterval = migrationInterval;
+		this.synchronous = synchronous;
+		parties = islands;
+		offers = new Migrant[islands];
+		arrived = new boolean[islands];
+	}
+
+	/**
+	 * @return If the islands exchange their trees in rounds.
+	 */
+	public boolean isSynchronous() {
+		return synchronous;
+	}
+
+	/**
+	 * Offers the best tree of an island for the current round of synchronous mode. Every island which hasn't left
+	 * offers a tree after the same numbers of mutations; once all of them have, the round is complete and its result
+	 * is the best of the offered trees. Of equally good trees, the one of the island with the lowest index wins.
+	 * This never blocks: the island is told when the round is complete and can leave its thread to others meanwhile.
+	 * @param island The island.
+	 * @param tree The best tree of the island, or null if it has none yet.
+	 * @param avg The average number of guesses of the tree.
+	 * @param onComplete Called once the round is complete, possibly right away on this thread.
+	 * @return The number of the round, for {@link #isComplete(long)} and {@link #result(long)}.
+	 */
+	public long offer(int island, GeneratedGuessNode tree, double avg, Runnable onComplete) {
+		ArrayList<Runnable> toRun;
+		long r;
+		synchronized (this) {
+			r = round;
+			offers[island] = (tree == null) ? null : new Migrant(tree, avg, island);
+			arrived[island] = true;
+			arrivedCount++;
+			waiting.add(onComplete);
+			toRun = completeRoundIfReady();
+		}
+		runAll(toRun);
+		return r;
+	}
+
+	/**
+	 * @param round The number of a round.
+	 * @return If the round is complete.
+	 */
+	public synchronized boolean isComplete(long round) {
+		return this.round > round;
+	}
+
+	/**
+	 * Returns the result of a complete round. It stays available until the next round is complete,
+	 * which can't happen before the island has offered its tree for that one.
+	 * @param round The number of the round.
+	 * @return The best offered tree, or null if no island offered one.
+	 */
+	public synchronized Migrant result(long round) {
+		if (this.round != round + 1) throw new IllegalStateException("Result of round " + round + " is not available");
+		return lastResult;
+	}
+
+	/**
+	 * Lets an island stop taking part in the rounds of synchronous mode, so that the others don't wait for it.
+	 * Does nothing otherwise.
+	 * @param island The island, which must not call {@link #offer(int, GeneratedGuessNode, double, Runnable)} afterwards.
+	 */
+	public void leave(int island) {
+		if (!synchronous) return;
+		ArrayList<Runnable> toRun;
+		synchronized (this) {
+			if (arrived[island]) {
+				// the island doesn't wait for the round anymore
+				arrived[island] = false;
+				arrivedCount--;
+			}
+			offers[island] = null;
+			parties--;
+			toRun = completeRoundIfReady();
+		}
+		runAll(toRun);
+	}
+
+	// returns the callbacks to run outside of the lock if the current round is complete
+	private ArrayList<Runnable> completeRoundIfReady() {
+		if (arrivedCount == 0 || arrivedCount < parties) return null;
+		Migrant best = null;
+		for (int i = 0; i < offers.length; i++) {
+			if (arrived[i] && offers[i] != null && (best == null || offers[i].avg < best.avg)) best = offers[i];
+			arrived[i] = false;
+			offers[i] = null;
+		}
+		lastResult = best;
+		arrivedCount = 0;
+		round++;
+		ArrayList<Runnable> toRun = new ArrayList<Runnable>(waiting);
+		waiting.clear();
+		return toRun;
+	}
+
+	private static void runAll(ArrayList<Runnable> callbacks) {
+		if (callbacks == null) return;
+		for (Runnable r : callbacks) {
+			r.run();
+		}
+	}
+
+	/**
+	 * @return After how many mutations an island exchanges trees, 0 if it never does.
+	 */
+	public int getMigrationInterval() {
+		return migrationInterval;
+	}
+
+	/**
+	 * Offers a tree as new global best. The tree is only copied if it is better than the current one.
+	 * @param island The island the tree comes from, or -1.
+	 * @param tree The tree.
+	 * @param avg The average number of guesses of the tree.
+	 * @return If the tree became the new global best.
+	 */
+	public boolean publish(int island, GeneratedGuessNode tree, double avg) {
+		Migrant m = null;
+		while (true) {
+			Migrant curr = best.get();
+			if (curr != null && curr.avg <= avg) return false;
+			if (m == null) m = new Migrant(tree, avg, island);
+			if (best.compareAndSet(curr, m)) return true;
+		}
+	}
+
+	/**
+	 * @return The best tree published so far, or null.
+	 */
+	public Migrant getBest() {
+		return best.get();
+	}
+
+	/**
+	 * Puts a tree into the inbox of an island, unless the inbox already holds a better one.
+	 * @param island The receiving island.
+	 * @param m The tree.
+	 */
+	public void send(int island, Migrant m) {
+		while (true) {
+			Migrant curr = inboxes.get(island);
+			if (curr != null && curr.avg <= m.avg) return;
+			if (inboxes.compareAndSet(island, curr, m)) return;
+		}
+	}
+
+	/**
+	 * Empties the inbox of an island.
+	 * @param island The island.
+	 * @return The tree that was in the inbox, or null.
+	 */
+	public Migrant takeInbox(int island) {
+		return inboxes.getAndSet(island, null);
+	}
+}
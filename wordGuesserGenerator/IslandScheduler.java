@@ -0,0 +1,160 @@
+package wordGuesserGenerator;
+
+import java.util.concurrent.PriorityBlockingQueue;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Runs generators ("islands") on a fixed number of threads, so that there can be more islands than processors.
+ * Each island works in short slices (see {@link GeneratorInterface#runSlice()}) and is queued again afterwards.
+ * Queued islands with a higher priority run first; islands with the same priority take turns.
+ * Paused islands and islands waiting for the others to migrate don't take up a thread.
+ *
+ * @author libraun
+ *
+ */
+public class IslandScheduler {
+	/**
+	 * Slice result: the island has more work and is queued again.
+	 */
+	static final int CONTINUE = 0;
+	/**
+	 * Slice result: the island is paused or has nothing to do; it is queued again when it is woken up.
+	 */
+	static final int IDLE = 1;
+	/**
+	 * Slice result: the island waits for the other islands; it is queued again when it is woken up.
+	 */
+	static final int PARKED = 2;
+	/**
+	 * Slice result: the island is finished and is never queued again.
+	 */
+	static final int DONE = 3;
+
+	private final ThreadPoolExecutor executor;
+	private final AtomicLong sequence = new AtomicLong();
+
+	// The scheduling state of one island.
+	final class Task {
+		private final GeneratorInterface island;
+		private boolean queued = false;
+		private boolean running = false;
+		// if the island was woken up while running, so it has to run again even if it is idle
+		private boolean wokenWhileRunning = false;
+		private boolean done = false;
+
+		Task(GeneratorInterface island) {
+			this.island = island;
+		}
+
+		/**
+		 * Queues the island unless it is queued already, finished, or running, in which case it runs again afterwards.
+		 */
+		synchronized void wake() {
+			if (done || queued) return;
+			if (running) {
+				wokenWhileRunning = true;
+				return;
+			}
+			enqueue();
+		}
+
+		// only called while holding the lock
+		private void enqueue() {
+			try {
+				executor.execute(new Slice(this, island.getPriority(), sequence.getAndIncrement()));
+				queued = true;
+			} catch (RejectedExecutionException e) {
+				// the scheduler was shut down
+				done = true;
+			}
+		}
+
+		void run() {
+			synchronized (this) {
+				queued = false;
+				running = true;
+				wokenWhileRunning = false;
+			}
+			int result;
+			try {
+				result = island.runSlice();
+			} catch (RuntimeException | Error e) {
+				// runSlice handles the errors of the generator itself, so this is a bug
+				e.printStackTrace();
+				result = DONE;
+			}
+			synchronized (this) {
+				running = false;
+				if (result == DONE) {
+					done = true;
+				} else if (result == CONTINUE || wokenWhileRunning) {
+					enqueue();
+				}
+			}
+		}
+	}
+
+	// One slice of an island in the queue of the executor.
+	private static class Slice implements Runnable, Comparable<Slice> {
+		private final Task task;
+		private final int priority;
+		private final long sequence;
+
+		Slice(Task task, int priority, long sequence) {
+			this.task = task;
+			this.priority = priority;
+			this.sequence = sequence;
+		}
+
+		@Override
+		public void run() {
+			task.run();
+		}
+
+		@Override
+		public int compareTo(Slice o) {
+			if (priority != o.priority) return (priority > o.priority) ? -1 : 1;
+			return Long.compare(sequence, o.sequence);
+		}
+	}
+
+	/**
+	 * Constructs a scheduler.
+	 * @param threads The number of threads to run the islands on.
+	 */
+	public IslandScheduler(int threads) {
+		final AtomicInteger count = new AtomicInteger();
+		executor = new ThreadPoolExecutor(threads, threads, 0, TimeUnit.MILLISECONDS, new PriorityBlockingQueue<Runnable>(),
+				new ThreadFactory() {
+					@Override
+					public Thread newThread(Runnable r) {
+						Thread t = new Thread(r, "island-worker-" + count.incrementAndGet());
+						t.setDaemon(true);
+						return t;
+					}
+				});
+	}
+
+	/**
+	 * Starts running an island. Its settings must not be changed afterwards, except through its control methods
+	 * (pausing, stopping, ...).
+	 * @param island The island, which must not be submitted to another scheduler.
+	 */
+	public void submit(GeneratorInterface island) {
+		Task task = new Task(island);
+		island.setTask(task);
+		task.wake();
+	}
+
+	/**
+	 * Lets the threads finish once no island is queued anymore. Islands should be stopped first.
+	 */
+	public void shutdown() {
+		executor.shutdown();
+	}
+}
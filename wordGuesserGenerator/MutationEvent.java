@@ -0,0 +1,34 @@
+package wordGuesserGenerator;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+
+/**
+ * JFR event for one mutation of the iterative improvement. Its duration is the time the mutation took.
+ *
+ * @author libraun
+ *
+ */
+@Name("wordGuesserGenerator.Mutation")
+@Label("Mutation")
+@Category("Word Guesser")
+@Description("A mutation of a guess tree, and whether it was kept")
+class MutationEvent extends Event {
+	@Label("Island")
+	int island;
+
+	@Label("Kind")
+	String kind;
+
+	@Label("Accepted")
+	boolean accepted;
+
+	@Label("Old Average")
+	double oldAverage;
+
+	@Label("New Average")
+	double newAverage;
+}
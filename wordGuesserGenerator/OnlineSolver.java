@@ -0,0 +1,174 @@
+package wordGuesserGenerator;
+
+import java.util.Arrays;
+
+/**
+ * Plays without a precomputed guess tree: the remaining candidates of a game are narrowed down with every hint,
+ * and every guess is chosen with the partition heuristic of {@link HeuristicGenerator} for the remaining candidates.
+ * Choosing a guess stops once the time budget per move is used up, in which case the best tip found so far is used.
+ * <p>
+ * The solver itself is immutable and can be shared by any number of games, see {@link #newGame()}.
+ *
+ * @author libraun
+ *
+ */
+public class OnlineSolver {
+	// how many tips are scored between two looks at the clock
+	private static final int DEADLINE_CHECK_INTERVAL = 64;
+	// passed as deadline to score every tip; nanoTime may be negative, so Long.MAX_VALUE would overflow the check
+	private static final long NO_DEADLINE = Long.MIN_VALUE;
+	// marks that the next guess still has to be chosen; any valid choice is either >= 0 or <= -1
+	private static final int NO_GUESS = Integer.MIN_VALUE;
+
+	private final TipTable table;
+	private final HeuristicParams params = new HeuristicParams();
+	private final long moveBudgetNanos;
+	// the first guess is the same in every game, so it is chosen once without a time limit
+	private final int openingGuess;
+
+	/**
+	 * Constructs a solver.
+	 * @param words The word list.
+	 * @param moveBudgetNanos How long choosing a guess may take.
+	 */
+	public OnlineSolver(String[] words, long moveBudgetNanos) {
+		table = TipTable.forWords(words);
+		this.moveBudgetNanos = moveBudgetNanos;
+		int[] all = new int[table.words.length];
+		for (int i = 0; i < all.length; i++) all[i] = i;
+		openingGuess = chooseGuess(all, all.length, NO_DEADLINE);
+	}
+
+	/**
+	 * @return A new game with all words of the list as candidates.
+	 */
+	public Game newGame() {
+		return new Game();
+	}
+
+	/**
+	 * The state of one game, which must not be used by several threads at once.
+	 */
+	public final class Game {
+		// the remaining candidates are candidates[0 .. size - 1], as indices into the word list
+		private final int[] candidates;
+		private int size;
+		// the current guess, encoded like the choices of the heuristic
+		private int guess = openingGuess;
+		private boolean found = false;
+
+		private Game() {
+			candidates = new int[table.words.length];
+			for (int i = 0; i < candidates.length; i++) candidates[i] = i;
+			size = candidates.length;
+		}
+
+		/**
+		 * @return The next guess, or null if no word of the list matches the hints so far.
+		 */
+		public String guess() {
+			if (size == 0) return null;
+			if (guess == NO_GUESS) {
+				long deadline = System.nanoTime() + moveBudgetNanos;
+				guess = chooseGuess(candidates, size, deadline);
+			}
+			return (guess >= 0) ? table.tips[guess] : table.words[-guess - 1];
+		}
+
+		/**
+		 * Removes the candidates which don't match the hint for the current guess.
+		 * @param hint The hint given by the computer.
+		 */
+		public void hint(String hint) {
+			if (found || size == 0) return;
+			int child = GuessEngine.childIndex(hint);
+			if (child == GuessEngine.FOUND) {
+				found = true;
+				return;
+			}
+			if (child == GuessEngine.UNKNOWN) return;
+			if (guess == NO_GUESS) guess(); // the hint belongs to the guess the player should have made
+			String guessStr = (guess >= 0) ? table.tips[guess] : table.words[-guess - 1];
+			int t = (guess >= 0) ? guess : table.indexOfTip(guessStr);
+			int kept = 0;
+			for (int i = 0; i < size; i++) {
+				int w = candidates[i];
+				if (table.words[w].equals(guessStr)) continue; // it would have been found
+				byte code = (t >= 0) ? table.classes[t][w] : TipTable.classify(table.words[w], guessStr);
+				if (code == child) candidates[kept++] = w;
+			}
+			size = kept;
+			guess = NO_GUESS;
+		}
+
+		/**
+		 * @return If the last guess was the word.
+		 */
+		public boolean isFound() {
+			return found;
+		}
+
+		/**
+		 * @return The number of words which still match all hints.
+		 */
+		public int remaining() {
+			return size;
+		}
+	}
+
+	/**
+	 * Chooses the tip whose partition of the candidates comes closest to the default goal weights,
+	 * like {@link HeuristicGenerator} does with default parameters.
+	 * @return The index of the tip, or -(index + 1) of the word to guess directly.
+	 */
+	private int chooseGuess(int[] candidates, int size, long deadline) {
+		if (size <= 3) {
+			// just use first word
+			return -candidates[0] - 1;
+		}
+		// only tips contained in some candidate split the candidates
+		boolean[] relevant = new boolean[table.tips.length];
+		for (int i = 0; i < size; i++) {
+			for (int t : table.wordTips[candidates[i]]) relevant[t] = true;
+		}
+		double[] meanGoals = params.defaultGoalWeights;
+		int bestTip = -1;
+		double bestWorstReduction = 1;
+		double bestDiffSum = Double.POSITIVE_INFINITY;
+		int[] counts = new int[5];
+		int scored = 0;
+		for (int t = 0; t < table.tips.length; t++) {
+			if (!relevant[t]) continue;
+			if (++scored % DEADLINE_CHECK_INTERVAL == 0 && bestTip >= 0 && deadline != NO_DEADLINE
+					&& System.nanoTime() - deadline > 0) break;
+			byte[] row = table.classes[t];
+			Arrays.fill(counts, 0);
+			for (int i = 0; i < size; i++) {
+				counts[row[candidates[i]]]++;
+			}
+			int countOnes = 0;
+			double worstReduction = 0;
+			double reductionSum = 0;
+			for (int i = 0; i < counts.length; i++) {
+				if (counts[i] == 1) countOnes++;
+				double ratio = (double) counts[i] / size;
+				worstReduction = Math.max(worstReduction, ratio);
+				reductionSum += (ratio - meanGoals[i]) * (ratio - meanGoals[i]);
+			}
+			if (countOnes >= 3 && size < params.countOnesThreshold) {
+				bestTip = t;
+				bestWorstReduction = worstReduction;
+				break;
+			}
+			if (reductionSum < bestDiffSum) {
+				bestTip = t;
+				bestWorstReduction = worstReduction;
+				bestDiffSum = reductionSum;
+			}
+		}
+		if (bestTip < 0 || bestWorstReduction > 0.95) {
+			return -candidates[0] - 1;
+		}
+		return bestTip;
+	}
+}
@@ -0,0 +1,170 @@
+package wordGuesserGenerator;
+
+import java.util.Random;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * Learns which heuristic parameters lead to improvements and draws them more often.
+ * <p>
+ * The range of every parameter (each goal weight, the probability to use the goal weights
+ * and the count ones threshold) is split into buckets, and every parameter is a separate multi-armed bandit
+ * over its buckets. A draw picks a bucket per parameter by an upper confidence bound and a value uniformly
+ * within the bucket. Whether the draw led to an improvement is reported back with {@link #reward(Draw, boolean)}.
+ * Old results are decayed, so the tuner follows the needs of the tree as it gets better.
+ * <p>
+ * A tuner is thread-safe and meant to be shared by all generator threads.
+ *
+ * @author libraun
+ *
+ */
+public class ParamTuner {
+	/**
+	 * The number of buckets per parameter.
+	 */
+	public static final int BUCKETS = 5;
+
+	// parameters: the five goal weights, useDefaultGoalWeightsProb and countOnesThreshold
+	private static final int PARAMS = 7;
+	private static final int PROB = 5;
+	private static final int COUNT_ONES = 6;
+	// counters are fixed point numbers, so that they can be decayed
+	private static final long ONE = 1024;
+	// after how many draws all counters are halved
+	private static final long DECAY_INTERVAL = 4096;
+
+	private final double[] min = new double[PARAMS];
+	private final double[] max = new double[PARAMS];
+	private final AtomicLongArray pulls = new AtomicLongArray(PARAMS * BUCKETS);
+	private final AtomicLongArray wins = new AtomicLongArray(PARAMS * BUCKETS);
+	private final AtomicLong draws = new AtomicLong();
+
+	/**
+	 * The buckets chosen for one draw.
+	 */
+	public static final class Draw {
+		private final int[] buckets = new int[PARAMS];
+	}
+
+	/**
+	 * Constructs a tuner. A parameter with an empty range is always set to its minimum.
+	 * @param goalMin The smallest goal weight.
+	 * @param goalMax The largest goal weight.
+	 * @param probMin The smallest probability to use the goal weights.
+	 * @param probMax The largest probability to use the goal weights.
+	 * @param countOnesMin The smallest count ones threshold.
+	 * @param countOnesMax The largest count ones threshold (exclusive).
+	 */
+	public ParamTuner(double goalMin, double goalMax, double probMin, double probMax, int countOnesMin, int countOnesMax) {
+		for (int i = 0; i < PROB; i++) {
+			min[i] = goalMin;
+			max[i] = goalMax;
+		}
+		min[PROB] = probMin;
+		max[PROB] = probMax;
+		min[COUNT_ONES] = countOnesMin;
+		max[COUNT_ONES] = countOnesMax;
+	}
+
+	/**
+	 * @return A tuner with the ranges used to generate the initial trees.
+	 */
+	public static ParamTuner forPrePhase() {
+		return new ParamTuner(0.1, 0.4, 1, 1, 0, 20);
+	}
+
+	/**
+	 * @return A tuner with the ranges used to re-generate subtrees while iteratively improving a tree.
+	 */
+	public static ParamTuner forImprovement() {
+		return new ParamTuner(0, 1, 0, 1, 0, 25);
+	}
+
+	/**
+	 * Draws new heuristic parameters.
+	 * @param r The random number generator to use.
+	 * @param params The parameters to set; all other fields are left alone.
+	 * @return The draw, to be passed to {@link #reward(Draw, boolean)}.
+	 */
+	public Draw draw(Random r, HeuristicParams params) {
+		Draw d = new Draw();
+		double[] values = new double[PARAMS];
+		for (int p = 0; p < PARAMS; p++) {
+			if (max[p] <= min[p]) {
+				values[p] = min[p];
+				continue;
+			}
+			d.buckets[p] = chooseBucket(p, r);
+			double width = (max[p] - min[p]) / BUCKETS;
+			values[p] = min[p] + (d.buckets[p] + r.nextDouble()) * width;
+		}
+		params.defaultGoalWeights = new double[] {values[0], values[1], values[2], values[3], values[4]};
+		params.useDefaultGoalWeightsProb = values[PROB];
+		params.countOnesThreshold = (int) Math.floor(values[COUNT_ONES]);
+		if (draws.incrementAndGet() % DECAY_INTERVAL == 0) {
+			decay();
+		}
+		return d;
+	}
+
+	/**
+	 * Reports the outcome of a draw.
+	 * @param d The draw.
+	 * @param improved If the parameters led to an improvement.
+	 */
+	public void reward(Draw d, boolean improved) {
+		for (int p = 0; p < PARAMS; p++) {
+			if (max[p] <= min[p]) continue;
+			int i = p * BUCKETS + d.buckets[p];
+			pulls.addAndGet(i, ONE);
+			if (improved) wins.addAndGet(i, ONE);
+		}
+	}
+
+	/**
+	 * @param param The index of the parameter, 0 to 4 for the goal weights, 5 for the probability and 6 for the count ones threshold.
+	 * @param bucket The bucket.
+	 * @return The share of draws from the bucket which led to an improvement, or 0 if there were none yet.
+	 */
+	public double successRate(int param, int bucket) {
+		long n = pulls.get(param * BUCKETS + bucket);
+		return (n == 0) ? 0 : (double) wins.get(param * BUCKETS + bucket) / n;
+	}
+
+	// UCB over the buckets of a parameter; the exploration is scaled with the overall success rate, because improvements are rare
+	private int chooseBucket(int p, Random r) {
+		long totalPulls = 0;
+		long totalWins = 0;
+		for (int b = 0; b < BUCKETS; b++) {
+			totalPulls += pulls.get(p * BUCKETS + b);
+			totalWins += wins.get(p * BUCKETS + b);
+		}
+		// try every bucket a few times first
+		int untried = r.nextInt(BUCKETS);
+		for (int k = 0; k < BUCKETS; k++) {
+			int b = (untried + k) % BUCKETS;
+			if (pulls.get(p * BUCKETS + b) < ONE) return b;
+		}
+		double mean = (double) (totalWins + ONE) / (totalPulls + ONE);
+		double logTotal = Math.log((double) totalPulls / ONE);
+		int best = 0;
+		double bestScore = Double.NEGATIVE_INFINITY;
+		for (int b = 0; b < BUCKETS; b++) {
+			double n = (double) pulls.get(p * BUCKETS + b) / ONE;
+			double score = wins.get(p * BUCKETS + b) / (double) ONE / n + Math.sqrt(2 * mean * logTotal / n);
+			if (score > bestScore) {
+				bestScore = score;
+				best = b;
+			}
+		}
+		return best;
+	}
+
+	// halves all counters, concurrent updates may get lost, which doesn't matter
+	private void decay() {
+		for (int i = 0; i < pulls.length(); i++) {
+			pulls.set(i, pulls.get(i) / 2);
+			wins.set(i, wins.get(i) / 2);
+		}
+	}
+}
@@ -0,0 +1,16 @@
+package wordGuesserGenerator;
+
+/**
+ * Receives the status text of a generator thread, e.g. to display it in the GUI.
+ * 
+ * @author libraun
+ *
+ */
+public interface StatsListener {
+	/**
+	 * Called whenever the status text of the generator changed.
+	 * Note that this is called on the generator thread.
+	 * @param stats The new status text.
+	 */
+	void statsChanged(String stats);
+}
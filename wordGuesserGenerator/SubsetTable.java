@@ -0,0 +1,182 @@
+package wordGuesserGenerator;
+
+import java.util.Arrays;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * A bounded, thread-safe map from subsets of a word list to values.
+ * Subsets are identified by a fingerprint of their sorted word indices and a tag;
+ * the indices themselves are kept as well, so that fingerprint collisions can't mix up entries.
+ * Every entry has a weight, e.g. the size of the value in memory, and the table is bounded by the total weight.
+ * The table is split into segments which each evict their least recently used entries.
+ *
+ * @author libraun
+ *
+ * @param <V> The type of the stored values.
+ */
+public class SubsetTable<V> {
+	private static final int SEGMENTS = 16;
+
+	private final Segment<V>[] segments;
+
+	/**
+	 * Constructs an empty table.
+	 * @param capacity The maximum total weight of the entries to keep, which is the number of entries if all have weight 1.
+	 */
+	@SuppressWarnings({"unchecked", "rawtypes"})
+	public SubsetTable(int capacity) {
+		segments = new Segment[SEGMENTS];
+		for (int i = 0; i < SEGMENTS; i++) {
+			segments[i] = new Segment<V>(Math.max(1, capacity / SEGMENTS));
+		}
+	}
+
+	/**
+	 * Brings a subset into the canonical form used as key.
+	 * @param idx The word indices of the subset.
+	 * @return A sorted copy of the indices.
+	 */
+	public static int[] canonical(int[] idx) {
+		int[] sorted = idx.clone();
+		Arrays.sort(sorted);
+		return sorted;
+	}
+
+	/**
+	 * Computes the 64 bit fingerprint of a subset.
+	 * @param sorted The sorted word indices of the subset.
+	 * @param tag An additional value distinguishing entries for the same subset.
+	 * @return The fingerprint.
+	 */
+	public static long fingerprint(int[] sorted, int tag) {
+		long h = 0x9E3779B97F4A7C15L * (tag + 1);
+		for (int i : sorted) {
+			h = (h ^ i) * 0xBF58476D1CE4E5B9L;
+			h ^= h >>> 31;
+		}
+		return h ^ sorted.length;
+	}
+
+	/**
+	 * @param sorted The sorted word indices of the subset.
+	 * @param tag The tag the value was stored with.
+	 * @return The stored value, or null if there is none.
+	 */
+	public V get(int[] sorted, int tag) {
+		Key k = new Key(sorted, tag);
+		Segment<V> s = segmentFor(k);
+		synchronized (s) {
+			return s.get(k);
+		}
+	}
+
+	/**
+	 * Stores a value for a subset, replacing the previous one.
+	 * @param sorted The sorted word indices of the subset. Must not be modified afterwards.
+	 * @param tag The tag to store the value with.
+	 * @param value The value to store.
+	 */
+	public void put(int[] sorted, int tag, V value) {
+		put(sorted, tag, value, 1);
+	}
+
+	/**
+	 * Stores a value for a subset, replacing the previous one, and evicts least recently used entries until the
+	 * total weight is within the capacity again.
+	 * @param sorted The sorted word indices of the subset. Must not be modified afterwards.
+	 * @param tag The tag to store the value with.
+	 * @param value The value to store.
+	 * @param weight The weight of the entry, at least 1.
+	 */
+	public void put(int[] sorted, int tag, V value, int weight) {
+		Key k = new Key(sorted, tag);
+		Segment<V> s = segmentFor(k);
+		synchronized (s) {
+			s.put(k, value, weight);
+		}
+	}
+
+	/**
+	 * @return The number of stored entries.
+	 */
+	public int size() {
+		int size = 0;
+		for (Segment<V> s : segments) {
+			synchronized (s) {
+				size += s.size();
+			}
+		}
+		return size;
+	}
+
+	private Segment<V> segmentFor(Key k) {
+		return segments[(int) (k.fingerprint >>> 60) & (SEGMENTS - 1)];
+	}
+
+	private static class Key {
+		final int[] idx;
+		final int tag;
+		final long fingerprint;
+
+		Key(int[] idx, int tag) {
+			this.idx = idx;
+			this.tag = tag;
+			fingerprint = SubsetTable.fingerprint(idx, tag);
+		}
+
+		@Override
+		public int hashCode() {
+			return (int) (fingerprint ^ (fingerprint >>> 32));
+		}
+
+		@Override
+		public boolean equals(Object o) {
+			if (!(o instanceof Key)) return false;
+			Key other = (Key) o;
+			return fingerprint == other.fingerprint && tag == other.tag && Arrays.equals(idx, other.idx);
+		}
+	}
+
+	private static class Weighted<V> {
+		final V value;
+		final int weight;
+
+		Weighted(V value, int weight) {
+			this.value = value;
+			this.weight = weight;
+		}
+	}
+
+	private static class Segment<V> {
+		private final long capacity;
+		private final LinkedHashMap<Key, Weighted<V>> entries = new LinkedHashMap<Key, Weighted<V>>(16, 0.75f, true);
+		private long weight = 0;
+
+		Segment(long capacity) {
+			this.capacity = capacity;
+		}
+
+		V get(Key k) {
+			Weighted<V> e = entries.get(k);
+			return (e == null) ? null : e.value;
+		}
+
+		void put(Key k, V value, int w) {
+			Weighted<V> old = entries.put(k, new Weighted<V>(value, w));
+			if (old != null) weight -= old.weight;
+			weight += w;
+			// the entry just stored is the most recently used one, so it is only evicted if it alone is too heavy
+			Iterator<Map.Entry<Key, Weighted<V>>> it = entries.entrySet().iterator();
+			while (weight > capacity && it.hasNext()) {
+				weight -= it.next().getValue().weight;
+				it.remove();
+			}
+		}
+
+		int size() {
+			return entries.size();
+		}
+	}
+}
@@ -0,0 +1,134 @@
+package wordGuesserGenerator;
+
+/**
+ * Remembers the best heuristically generated subtree for subsets of a word list, so that generation can reuse
+ * subtrees for subsets it has seen before, e.g. in an earlier mutation or in another thread.
+ * Entries are keyed by the subset and by a bucket of the heuristic parameters, because the same subset is split
+ * differently under different parameters. The memo is shared by all generators working on the same word list and weights;
+ * it is bounded by the total number of words of the stored subsets.
+ *
+ * @author libraun
+ *
+ */
+public class SubtreeMemo {
+	private static final int CAPACITY = 1 << 18;
+
+	private static SubtreeMemo last = null;
+
+	private final TipTable table;
+	private final WordWeights weights;
+	// the weight of each word, null without weights
+	private final double[] wordWeights;
+	private final SubsetTable<Entry> entries = new SubsetTable<Entry>(CAPACITY);
+
+	// A subtree which is never attached to a tree itself, only clones of it are, and the total (weighted) number of guesses
+	// needed to find all words of its subset.
+	private static class Entry {
+		final GeneratedGuessNode tree;
+		final double cost;
+
+		Entry(GeneratedGuessNode tree, double cost) {
+			this.tree = tree;
+			this.cost = cost;
+		}
+	}
+
+	/**
+	 * Returns the memo for a tip table, reusing the last one if the table and weights are the same.
+	 * @param table The tip table of the word list.
+	 * @param weights The weights of the words, or null to weigh them the same.
+	 * @return The memo for the word list.
+	 */
+	public static synchronized SubtreeMemo forTable(TipTable table, WordWeights weights) {
+		if (last == null || last.table != table || last.weights != weights) {
+			last = new SubtreeMemo(table, weights);
+		}
+		return last;
+	}
+
+	/**
+	 * Creates a memo which isn't shared with other generators, e.g. so that their results don't depend on each other.
+	 * @param table The tip table of the word list.
+	 * @param weights The weights of the words, or null to weigh them the same.
+	 * @return The new memo.
+	 */
+	public static SubtreeMemo create(TipTable table, WordWeights weights) {
+		return new SubtreeMemo(table, weights);
+	}
+
+	private SubtreeMemo(TipTable table, WordWeights weights) {
+		this.table = table;
+		this.weights = weights;
+		wordWeights = (weights == null) ? null : weights.weightsOf(table.words);
+	}
+
+	/**
+	 * Computes the bucket of heuristic parameters that subtrees are stored under.
+	 * Parameters which only differ slightly share a bucket.
+	 * @param params The parameters for the heuristic guesser.
+	 * @return The bucket.
+	 */
+	public static int bucket(HeuristicParams params) {
+		int tag = 0;
+		for (double w : params.defaultGoalWeights) {
+			tag = tag * 4 + quantize(w);
+		}
+		tag = tag * 4 + quantize(params.useDefaultGoalWeightsProb);
+		tag = tag * 8 + Math.min(7, Math.max(0, params.countOnesThreshold / 4));
+		tag = tag * 21 + Math.min(ExactSolver.MAX_WORDS, Math.max(0, params.exactSolveThreshold));
+		return tag;
+	}
+
+	// maps [0, 1] to 0..3
+	private static int quantize(double d) {
+		return Math.min(3, Math.max(0, (int) (d * 4)));
+	}
+
+	/**
+	 * @param sorted The sorted word indices of the subset.
+	 * @param bucket The parameter bucket, see {@link #bucket(HeuristicParams)}.
+	 * @return A copy of the best known subtree for the subset, or null if there is none.
+	 */
+	public GeneratedGuessNode get(int[] sorted, int bucket) {
+		Entry e = entries.get(sorted, bucket);
+		return (e == null) ? null : e.tree.clone();
+	}
+
+	/**
+	 * Offers a subtree for a subset. It is only stored if it is better than the known one.
+	 * @param sorted The sorted word indices of the subset. Must not be modified afterwards.
+	 * @param bucket The parameter bucket, see {@link #bucket(HeuristicParams)}.
+	 * @param tree The subtree, which must find every word of the subset. It is copied, so it may be attached to a tree.
+	 */
+	public void offer(int[] sorted, int bucket, GeneratedGuessNode tree) {
+		double cost = cost(sorted, tree);
+		Entry e = entries.get(sorted, bucket);
+		// two threads may offer at the same time, then one of the trees is lost, which doesn't matter
+		if (e == null || cost < e.cost) {
+			entries.put(sorted, bucket, new Entry(tree.clone(), cost), sorted.length);
+		}
+	}
+
+	/**
+	 * @return The number of stored subtrees.
+	 */
+	public int size() {
+		return entries.size();
+	}
+
+	// the total number of guesses the subtree needs to find the words, each counted with its weight
+	private double cost(int[] idx, GeneratedGuessNode tree) {
+		double cost = 0;
+		for (int w : idx) {
+			String word = table.words[w];
+			GeneratedGuessNode n = tree;
+			int depth = 1;
+			while (!n.guess.equals(word)) {
+				n = n.getChild(TipTable.classify(word, n.guess));
+				depth++;
+			}
+			cost += (wordWeights == null) ? depth : depth * wordWeights[w];
+		}
+		return cost;
+	}
+}
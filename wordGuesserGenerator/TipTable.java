@@ -0,0 +1,242 @@
+package wordGuesserGenerator;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Precomputed classification of every useful tip against every word of a word list.
+ * The useful tips are all n-grams (of any characters) up to a maximum length which occur in at least two words.
+ * They are collected in a single pass over the word list, which also yields the words containing each tip.
+ * The table is immutable once built, so all generators working on the same word list share one instance.
+ *
+ * @author libraun
+ *
+ */
+public class TipTable {
+
+	/**
+	 * Partition code for words which don't contain the tip.
+	 */
+	public static final byte NOT_CONT = 0;
+	/**
+	 * Partition code for words which contain the tip, but not at the beginning or end.
+	 */
+	public static final byte ONLY_CONT = 1;
+	/**
+	 * Partition code for words which begin with the tip, but don't end with it.
+	 */
+	public static final byte BEGIN = 2;
+	/**
+	 * Partition code for words which end with the tip, but don't begin with it.
+	 */
+	public static final byte END = 3;
+	/**
+	 * Partition code for words which begin and end with the tip.
+	 */
+	public static final byte BEG_END = 4;
+
+	/**
+	 * The default maximum length of a tip, in code points.
+	 */
+	public static final int DEFAULT_MAX_TIP_LENGTH = 3;
+
+	private static TipTable last = null;
+
+	final String[] words;
+	final int maxTipLength;
+	// all n-grams of at most maxTipLength code points which occur in at least two words,
+	// ordered by length and then alphabetically
+	final String[] tips;
+	// tipFrequency[t] is the number of words containing tips[t]
+	final int[] tipFrequency;
+	// classes[t][w] is the partition code of words[w] for the guess tips[t]
+	final byte[][] classes;
+	// index of the word that is equal to tips[t], or -1
+	final int[] tipWord;
+	// wordTips[w] are the indices of the tips contained in words[w], in ascending order
+	final int[][] wordTips;
+
+	private final HashMap<String, Integer> wordIndex = new HashMap<String, Integer>();
+	private final HashMap<String, Integer> tipIndex = new HashMap<String, Integer>();
+
+	// The words containing an n-gram together with their partition codes, in ascending order of the words.
+	private static class Postings {
+		int[] words = new int[4];
+		byte[] codes = new byte[4];
+		int size = 0;
+
+		void add(int word, byte code) {
+			if (size > 0 && words[size - 1] == word) return; // n-gram occurs several times in the word
+			if (size == words.length) {
+				words = Arrays.copyOf(words, size * 2);
+				codes = Arrays.copyOf(codes, size * 2);
+			}
+			words[size] = word;
+			codes[size] = code;
+			size++;
+		}
+	}
+
+	/**
+	 * Returns the table for a word list with tips of up to {@link #DEFAULT_MAX_TIP_LENGTH} code points,
+	 * reusing the last built one if the word list is the same.
+	 * @param words The word list.
+	 * @return The table for the word list.
+	 */
+	public static TipTable forWords(String[] words) {
+		return forWords(words, DEFAULT_MAX_TIP_LENGTH);
+	}
+
+	/**
+	 * Returns the table for a word list, reusing the last built one if the word list and tip length are the same.
+	 * @param words The word list.
+	 * @param maxTipLength The maximum length of a tip, in code points.
+	 * @return The table for the word list.
+	 */
+	public static synchronized TipTable forWords(String[] words, int maxTipLength) {
+		if (last == null || last.maxTipLength != maxTipLength || !Arrays.equals(last.words, words)) {
+			last = build(words.clone(), maxTipLength);
+		}
+		return last;
+	}
+
+	// builds a table without looking at the cache, package-private for the benchmarks
+	static TipTable build(String[] words, int maxTipLength) {
+		if (maxTipLength < 1) throw new IllegalArgumentException("maxTipLength must be at least 1");
+		return new TipTable(words, maxTipLength);
+	}
+
+	private TipTable(String[] words, int maxTipLength) {
+		this.words = words;
+		this.maxTipLength = maxTipLength;
+		for (int i = 0; i < words.length; i++) {
+			wordIndex.put(words[i], i);
+		}
+
+		// one pass over the words collects every n-gram together with the words containing it
+		HashMap<String, Postings> index = new HashMap<String, Postings>();
+		for (int w = 0; w < words.length; w++) {
+			String word = words[w];
+			for (int start = 0; start < word.length(); start = word.offsetByCodePoints(start, 1)) {
+				int end = start;
+				for (int len = 1; len <= maxTipLength && end < word.length(); len++) {
+					end = word.offsetByCodePoints(end, 1);
+					String gram = word.substring(start, end);
+					Postings p = index.get(gram);
+					if (p == null) {
+						p = new Postings();
+						index.put(gram, p);
+					}
+					p.add(w, classify(word, gram, start, end));
+				}
+			}
+		}
+
+		// tips contained in only one word are never better than guessing that word
+		ArrayList<String> useful = new ArrayList<String>();
+		for (Map.Entry<String, Postings> e : index.entrySet()) {
+			if (e.getValue().size > 1) useful.add(e.getKey());
+		}
+		Collections.sort(useful, new Comparator<String>() {
+			@Override
+			public int compare(String a, String b) {
+				return (a.length() != b.length()) ? a.length() - b.length() : a.compareTo(b);
+			}
+		});
+		tips = useful.toArray(new String[useful.size()]);
+
+		tipFrequency = new int[tips.length];
+		classes = new byte[tips.length][];
+		tipWord = new int[tips.length];
+		int[] counts = new int[words.length];
+		for (int t = 0; t < tips.length; t++) {
+			tipIndex.put(tips[t], t);
+			Integer w = wordIndex.get(tips[t]);
+			tipWord[t] = (w == null) ? -1 : w;
+			Postings p = index.get(tips[t]);
+			tipFrequency[t] = p.size;
+			byte[] row = new byte[words.length]; // NOT_CONT is 0
+			for (int i = 0; i < p.size; i++) {
+				row[p.words[i]] = p.codes[i];
+				counts[p.words[i]]++;
+			}
+			classes[t] = row;
+		}
+		wordTips = new int[words.length][];
+		for (int w = 0; w < words.length; w++) {
+			wordTips[w] = new int[counts[w]];
+			counts[w] = 0;
+		}
+		for (int t = 0; t < tips.length; t++) {
+			Postings p = index.get(tips[t]);
+			for (int i = 0; i < p.size; i++) {
+				int w = p.words[i];
+				wordTips[w][counts[w]++] = t;
+			}
+		}
+	}
+
+	// the partition code of a word for one of its substrings, given by its position
+	private static byte classify(String word, String gram, int start, int end) {
+		boolean begins = start == 0 || word.startsWith(gram);
+		boolean ends = end == word.length() || word.endsWith(gram);
+		if (begins) {
+			return ends ? BEG_END : BEGIN;
+		}
+		return ends ? END : ONLY_CONT;
+	}
+
+	/**
+	 * Computes the partition code of a word for a guess.
+	 * @param word The word to classify.
+	 * @param guess The guess to use.
+	 * @return The partition code, which is also the index of the child node the word belongs to.
+	 */
+	public static byte classify(String word, String guess) {
+		if (!word.contains(guess)) return NOT_CONT;
+		boolean begins = word.startsWith(guess);
+		boolean ends = word.endsWith(guess);
+		if (begins) {
+			return ends ? BEG_END : BEGIN;
+		}
+		return ends ? END : ONLY_CONT;
+	}
+
+	/**
+	 * @return The number of words in the table.
+	 */
+	public int wordCount() {
+		return words.length;
+	}
+
+	/**
+	 * @param word The word to look up.
+	 * @return The index of the word, or -1 if it is not in the word list.
+	 */
+	public int indexOfWord(String word) {
+		Integer i = wordIndex.get(word);
+		return (i == null) ? -1 : i;
+	}
+
+	/**
+	 * @param tip The tip to look up.
+	 * @return The number of words containing the tip, or 0 if it is not a useful tip.
+	 */
+	public int tipFrequency(String tip) {
+		int t = indexOfTip(tip);
+		return (t < 0) ? 0 : tipFrequency[t];
+	}
+
+	/**
+	 * @param tip The tip to look up.
+	 * @return The index of the tip, or -1 if it is not a useful tip.
+	 */
+	public int indexOfTip(String tip) {
+		Integer i = tipIndex.get(tip);
+		return (i == null) ? -1 : i;
+	}
+}
@@ -0,0 +1,232 @@
+package wordGuesserGenerator;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeSet;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Provides a guess tree for any word list. Trees are identified by a SHA-256 fingerprint of the word list and are looked up
+ * <ol>
+ * <li>in memory, where the least recently used trees are evicted,</li>
+ * <li>in the cache directory, as {@code <fingerprint>.bin},</li>
+ * <li>in the fallback files (e.g. alg.bin), which are only used if they fit the word list,</li>
+ * </ol>
+ * and if none fits, a tree is generated within the generation budget and stored in the cache directory.
+ *
+ * @author libraun
+ *
+ */
+public class TreeCache {
+	private final Path directory;
+	private final long generationBudgetMillis;
+	private final List<Path> fallbackFiles = new ArrayList<Path>();
+
+	private final LinkedHashMap<String, GuessEngine> memory;
+	// one lock per fingerprint, so that a tree is only loaded or generated once
+	private final ConcurrentHashMap<String, Object> loadLocks = new ConcurrentHashMap<String, Object>();
+
+	/**
+	 * Constructs a cache.
+	 * @param directory The directory in which trees are stored. It is created when the first tree is stored.
+	 * @param capacity The number of trees kept in memory.
+	 * @param generationBudgetMillis How long to spend generating a tree for an unknown word list.
+	 */
+	public TreeCache(Path directory, final int capacity, long generationBudgetMillis) {
+		this.directory = directory;
+		this.generationBudgetMillis = generationBudgetMillis;
+		memory = new LinkedHashMap<String, GuessEngine>(16, 0.75f, true) {
+			private static final long serialVersionUID = 1L;
+
+			@Override
+			protected boolean removeEldestEntry(Map.Entry<String, GuessEngine> eldest) {
+				return size() > capacity;
+			}
+		};
+	}
+
+	/**
+	 * Adds a tree file which is tried for word lists that are not in the cache directory.
+	 * @param file The file, in the binary or the text format. It doesn't need to exist.
+	 */
+	public synchronized void addFallbackFile(Path file) {
+		fallbackFiles.add(file);
+	}
+
+	/**
+	 * Computes the fingerprint of a word list. The order and duplicates of the words don't matter.
+	 * @param words The word list.
+	 * @return The SHA-256 hash of the sorted distinct words, as hex string.
+	 */
+	public static String fingerprint(String[] words) {
+		MessageDigest md;
+		try {
+			md = MessageDigest.getInstance("SHA-256");
+		} catch (NoSuchAlgorithmException e) {
+			throw new IllegalStateException(e); // every JVM supports SHA-256
+		}
+		for (String w : new TreeSet<String>(Arrays.asList(words))) {
+			md.update(w.getBytes(StandardCharsets.UTF_8));
+			md.update((byte) '\n');
+		}
+		StringBuilder hex = new StringBuilder();
+		for (byte b : md.digest()) {
+			hex.append(Character.forDigit((b >> 4) & 0xf, 16)).append(Character.forDigit(b & 0xf, 16));
+		}
+		return hex.toString();
+	}
+
+	/**
+	 * Returns a guess tree which finds every word of a word list, generating one if necessary.
+	 * @param words The word list.
+	 * @return The engine for the tree.
+	 */
+	public GuessEngine get(String[] words) {
+		return lookup(words, true);
+	}
+
+	/**
+	 * Returns a stored guess tree for a word list, without generating one.
+	 * @param words The word list.
+	 * @return The engine for the tree, or null if no stored tree fits the word list.
+	 */
+	public GuessEngine find(String[] words) {
+		return lookup(words, false);
+	}
+
+	private GuessEngine lookup(String[] words, boolean generate) {
+		String fp = fingerprint(words);
+		GuessEngine engine = getFromMemory(fp);
+		if (engine != null) return engine;
+
+		Object lock = new Object();
+		Object existing = loadLocks.putIfAbsent(fp, lock);
+		if (existing != null) lock = existing;
+		synchronized (lock) {
+			try {
+				// another thread may have finished loading meanwhile
+				engine = getFromMemory(fp);
+				if (engine != null) return engine;
+
+				Path file = directory.resolve(fp + ".bin");
+				CompiledGuessTree tree = loadIfValid(file, words);
+				if (tree == null) {
+					for (Path fallback : fallbackFiles()) {
+						tree = loadIfValid(fallback, words);
+						if (tree != null) {
+							copyToDirectory(fallback, file);
+							break;
+						}
+					}
+				}
+				if (tree == null) {
+					if (!generate) return null;
+					GeneratedGuessNode generated = generate(words);
+					store(generated, file);
+					tree = CompiledGuessTree.compile(generated);
+				}
+				engine = new GuessEngine(tree);
+				synchronized (this) {
+					memory.put(fp, engine);
+				}
+				return engine;
+			} finally {
+				// also when nothing was found or generating failed, so that the map doesn't grow
+				loadLocks.remove(fp, lock);
+			}
+		}
+	}
+
+	private synchronized GuessEngine getFromMemory(String fp) {
+		return memory.get(fp);
+	}
+
+	private synchronized List<Path> fallbackFiles() {
+		return new ArrayList<Path>(fallbackFiles);
+	}
+
+	// Returns null if the file doesn't exist, can't be read or doesn't fit the word list.
+	// A tree fits if it finds every word and every leaf is a word of the list; the latter rejects trees for larger lists.
+	private static CompiledGuessTree loadIfValid(Path file, String[] words) {
+		if (!Files.isRegularFile(file)) return null;
+		try {
+			CompiledGuessTree tree = GuessTreeIO.loadCompiled(file);
+			for (String w : words) {
+				if (tree.guesses(w) < 0) return null;
+			}
+			HashSet<String> wordSet = new HashSet<String>(Arrays.asList(words));
+			for (int node = 0; node < tree.size(); node++) {
+				if (tree.isLeaf(node) && !wordSet.contains(tree.guess(node))) return null;
+			}
+			return tree;
+		} catch (IOException | RuntimeException e) {
+			System.err.println("Ignoring guess tree " + file + ": " + e);
+			return null;
+		}
+	}
+
+	/**
+	 * Generates trees for a word list until the generation budget is used up and returns the best one.
+	 * At least one tree is generated.
+	 * @param words The word list.
+	 * @return The best tree.
+	 */
+	private GeneratedGuessNode generate(String[] words) {
+		long deadline = System.currentTimeMillis() + generationBudgetMillis;
+		HashSet<String> wordSet = new HashSet<String>(Arrays.asList(words));
+		HeuristicGenerator gen = new HeuristicGenerator(wordSet.toArray(new String[wordSet.size()]));
+		HeuristicParams params = new HeuristicParams();
+		GeneratedGuessNode best = null;
+		double bestAvg = Double.POSITIVE_INFINITY;
+		do {
+			GeneratedGuessNode tree = gen.generateForWordList(wordSet, params);
+			double avg;
+			try {
+				avg = tree.calcAverage(words);
+			} catch (Exception e) {
+				throw new IllegalStateException("Generated guess tree doesn't find every word", e);
+			}
+			if (avg < bestAvg) {
+				bestAvg = avg;
+				best = tree;
+			}
+		} while (System.currentTimeMillis() < deadline);
+		return best;
+	}
+
+	// writes to a temporary file first, so that other processes never see a partial tree
+	private void store(GeneratedGuessNode tree, Path file) {
+		try {
+			Files.createDirectories(directory);
+			Path tmp = Files.createTempFile(directory, file.getFileName().toString(), ".tmp");
+			try {
+				GuessTreeIO.save(tree, tmp);
+				Files.move(tmp, file, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+			} finally {
+				Files.deleteIfExists(tmp);
+			}
+		} catch (IOException e) {
+			// the tree can still be used, it just has to be generated again next time
+			e.printStackTrace();
+		}
+	}
+
+	private void copyToDirectory(Path source, Path file) {
+		try {
+			store(GuessTreeIO.load(source), file);
+		} catch (IOException e) {
+			e.printStackTrace();
+		}
+	}
+}
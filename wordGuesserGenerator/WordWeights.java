@@ -0,0 +1,104 @@
+package wordGuesserGenerator;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * How often each word of a word list is drawn, e.g. counted from real games. With weights, the generator minimizes
+ * the expected number of guesses per game instead of the average over the word list: the average of a tree
+ * weighs every word by its weight, and the heuristic balances the partitions by weight instead of by number of words.
+ * Words without a weight weigh 1.
+ *
+ * @author libraun
+ *
+ */
+public final class WordWeights {
+	/**
+	 * The name of the weights file which is used if it is next to the word list.
+	 */
+	public static final String FILE_NAME = "gewichte.txt";
+
+	private final HashMap<String, Double> weights;
+
+	/**
+	 * Constructs weights.
+	 * @param weights The weight of each word, which must be positive.
+	 */
+	public WordWeights(Map<String, Double> weights) {
+		for (Map.Entry<String, Double> e : weights.entrySet()) {
+			checkWeight(e.getKey(), e.getValue());
+		}
+		this.weights = new HashMap<String, Double>(weights);
+	}
+
+	private static void checkWeight(String word, double weight) {
+		if (!(weight > 0) || Double.isInfinite(weight)) {
+			throw new IllegalArgumentException("Invalid weight " + weight + " for " + word);
+		}
+	}
+
+	/**
+	 * Reads a weights file. Every line holds a word and its weight, separated by whitespace; empty lines are skipped.
+	 * @param file The path of the file.
+	 * @return The weights.
+	 * @throws IOException If the file could not be read or a line is invalid.
+	 */
+	public static WordWeights load(Path file) throws IOException {
+		List<String> lines = Files.readAllLines(file, StandardCharsets.UTF_8);
+		HashMap<String, Double> weights = new HashMap<String, Double>();
+		for (int i = 0; i < lines.size(); i++) {
+			String line = lines.get(i).trim();
+			if (line.isEmpty()) continue;
+			int space = Math.max(line.lastIndexOf(' '), line.lastIndexOf('\t'));
+			try {
+				if (space < 0) throw new IllegalArgumentException("Missing weight");
+				String word = line.substring(0, space).trim();
+				double weight = Double.parseDouble(line.substring(space + 1));
+				checkWeight(word, weight);
+				weights.put(word, weight);
+			} catch (IllegalArgumentException e) {
+				throw new IOException(file + ", line " + (i + 1) + ": " + e.getMessage(), e);
+			}
+		}
+		return new WordWeights(weights);
+	}
+
+	/**
+	 * Reads the weights file ({@link #FILE_NAME}) in the directory of a word list, if there is one.
+	 * @param wordList The path of the word list.
+	 * @return The weights, or null if there is no weights file.
+	 * @throws IOException If the file could not be read or a line is invalid.
+	 */
+	public static WordWeights loadNextTo(Path wordList) throws IOException {
+		Path dir = wordList.toAbsolutePath().getParent();
+		Path file = (dir == null) ? null : dir.resolve(FILE_NAME);
+		if (file == null || !Files.isRegularFile(file)) return null;
+		return load(file);
+	}
+
+	/**
+	 * @param word A word.
+	 * @return The weight of the word, 1 if it has none.
+	 */
+	public double weightOf(String word) {
+		Double w = weights.get(word);
+		return (w == null) ? 1 : w;
+	}
+
+	/**
+	 * @param words A word list.
+	 * @return The weight of every word of the list.
+	 */
+	public double[] weightsOf(String[] words) {
+		double[] result = new double[words.length];
+		for (int i = 0; i < words.length; i++) {
+			result[i] = weightOf(words[i]);
+		}
+		return result;
+	}
+}